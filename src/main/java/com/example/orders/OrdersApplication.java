@@ -1,11 +1,14 @@
 package com.example.orders;
 
+import com.example.orders.admission.ForwardedClientInterceptor;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.client.RestTemplate;
 
 @SpringBootApplication
+@EnableScheduling
 public class OrdersApplication {
 
     public static void main(String[] args) {
@@ -14,6 +17,8 @@ public class OrdersApplication {
 
     @Bean
     public RestTemplate restTemplate() {
-        return new RestTemplate();
+        RestTemplate restTemplate = new RestTemplate();
+        restTemplate.getInterceptors().add(new ForwardedClientInterceptor());
+        return restTemplate;
     }
 }
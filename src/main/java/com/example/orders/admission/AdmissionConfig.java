@@ -0,0 +1,34 @@
+package com.example.orders.admission;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class AdmissionConfig implements WebMvcConfigurer {
+
+    @Value("${orders.admission.rate-per-second:50}")
+    private double ratePerSecond;
+
+    @Value("${orders.admission.burst:100}")
+    private int burst;
+
+    @Value("${orders.admission.max-concurrent-writes:8}")
+    private int maxConcurrentWrites;
+
+    @Value("${orders.admission.max-queue-wait-ms:100}")
+    private long maxQueueWaitMillis;
+
+    @Bean
+    public AdmissionControl admissionControl() {
+        return new AdmissionControl(ratePerSecond, burst, maxConcurrentWrites, maxQueueWaitMillis);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new AdmissionInterceptor(admissionControl()))
+                .addPathPatterns("/orders", "/orders/**");
+    }
+}
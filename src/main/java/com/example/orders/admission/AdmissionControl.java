@@ -0,0 +1,99 @@
+package com.example.orders.admission;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission control for write requests: a token bucket per client and endpoint, plus a
+ * global limit on concurrent writes so a burst sheds load before the connection pool is
+ * exhausted and reads are starved.
+ */
+public class AdmissionControl {
+
+    private static final Logger log = LoggerFactory.getLogger(AdmissionControl.class);
+
+    private final double ratePerSecond;
+    private final int burst;
+    private final long maxQueueWaitNanos;
+    private final int maxConcurrentWrites;
+    private final Semaphore writePermits;
+    private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder concurrencyRejected = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final LongAccumulator longestQueueWaitNanos = new LongAccumulator(Math::max, 0);
+
+    public AdmissionControl(double ratePerSecond, int burst, int maxConcurrentWrites, long maxQueueWaitMillis) {
+        this.ratePerSecond = ratePerSecond;
+        this.burst = burst;
+        this.maxQueueWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxQueueWaitMillis);
+        this.maxConcurrentWrites = maxConcurrentWrites;
+        this.writePermits = new Semaphore(maxConcurrentWrites);
+    }
+
+    // Returns 0 when the request may proceed (and holds a write permit), otherwise the nanoseconds to wait before retrying
+    public long tryAdmit(String client, String endpoint) {
+        long now = System.nanoTime();
+        TokenBucket bucket = buckets.computeIfAbsent(client + ' ' + endpoint,
+                key -> new TokenBucket(ratePerSecond, burst, now));
+        long retryAfter = bucket.tryAcquire(now);
+        if (retryAfter > 0) {
+            rateLimited.increment();
+            return retryAfter;
+        }
+
+        boolean acquired = false;
+        try {
+            acquired = writePermits.tryAcquire(maxQueueWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        long waited = System.nanoTime() - now;
+        queueWaitNanos.add(waited);
+        longestQueueWaitNanos.accumulate(waited);
+        if (!acquired) {
+            // The request is shed, so it must not also count against the client's rate
+            bucket.refund();
+            concurrencyRejected.increment();
+            return Math.max(maxQueueWaitNanos, TimeUnit.SECONDS.toNanos(1));
+        }
+        admitted.increment();
+        return 0;
+    }
+
+    public void release() {
+        writePermits.release();
+    }
+
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("admitted", admitted.sum());
+        metrics.put("rateLimited", rateLimited.sum());
+        metrics.put("concurrencyRejected", concurrencyRejected.sum());
+        metrics.put("inFlightWrites", maxConcurrentWrites - writePermits.availablePermits());
+        metrics.put("queueWaitTotalMillis", TimeUnit.NANOSECONDS.toMillis(queueWaitNanos.sum()));
+        metrics.put("queueWaitMaxMillis", TimeUnit.NANOSECONDS.toMillis(longestQueueWaitNanos.get()));
+        metrics.put("trackedClients", buckets.size());
+        return metrics;
+    }
+
+    // Drops buckets that have fully refilled so the map does not grow with every client ever seen
+    @Scheduled(fixedDelayString = "${orders.admission.bucket-cleanup-ms:60000}")
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        int before = buckets.size();
+        buckets.values().removeIf(bucket -> bucket.isIdle(now));
+        log.debug("Evicted {} idle rate-limit buckets", before - buckets.size());
+    }
+}
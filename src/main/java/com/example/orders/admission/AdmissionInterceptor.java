@@ -0,0 +1,87 @@
+package com.example.orders.admission;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies {@link AdmissionControl} to write requests (POST, PUT, DELETE) and answers
+ * 429 Too Many Requests with a Retry-After header when a request is not admitted.
+ */
+public class AdmissionInterceptor implements HandlerInterceptor {
+
+    private static final String PERMIT_HELD = AdmissionInterceptor.class.getName() + ".PERMIT_HELD";
+
+    private final AdmissionControl admissionControl;
+
+    public AdmissionInterceptor(AdmissionControl admissionControl) {
+        this.admissionControl = admissionControl;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws IOException {
+        if (!isWrite(request.getMethod())) {
+            return true;
+        }
+        // Group by mapping pattern so /orders/1 and /orders/2 share one bucket
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String endpoint = request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+
+        long retryAfterNanos = admissionControl.tryAdmit(clientOf(request), endpoint);
+        if (retryAfterNanos > 0) {
+            long retryAfterSeconds = Math.max(1, (retryAfterNanos + TimeUnit.SECONDS.toNanos(1) - 1)
+                    / TimeUnit.SECONDS.toNanos(1));
+            response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+            response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Too many write requests, retry later");
+            return false;
+        }
+        request.setAttribute(PERMIT_HELD, Boolean.TRUE);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        if (request.getAttribute(PERMIT_HELD) != null) {
+            request.removeAttribute(PERMIT_HELD);
+            admissionControl.release();
+        }
+    }
+
+    /**
+     * The web UI calls this API from the same host, so a forwarded address is only trusted from
+     * loopback; any other caller could set the header to spread its writes over many buckets.
+     */
+    static String clientOf(HttpServletRequest request) {
+        String remoteAddr = request.getRemoteAddr();
+        String forwardedFor = request.getHeader(ForwardedClientInterceptor.FORWARDED_FOR);
+        if (forwardedFor == null || forwardedFor.isEmpty() || !isLoopback(remoteAddr)) {
+            return remoteAddr;
+        }
+        // The last entry is the one added by the hop we trust
+        String[] hops = forwardedFor.split(",");
+        String client = hops[hops.length - 1].trim();
+        return client.isEmpty() ? remoteAddr : client;
+    }
+
+    private static boolean isLoopback(String address) {
+        try {
+            // getRemoteAddr() is an IP literal, so this does not resolve anything
+            return InetAddress.getByName(address).isLoopbackAddress();
+        } catch (UnknownHostException e) {
+            return false;
+        }
+    }
+
+    private static boolean isWrite(String method) {
+        return "POST".equals(method) || "PUT".equals(method) || "DELETE".equals(method);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.orders.admission;
+
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.IOException;
+
+/**
+ * Adds the browser's address as {@code X-Forwarded-For} to calls the web UI makes to the
+ * REST API, so {@link AdmissionInterceptor} limits each browser instead of the UI as a whole.
+ */
+public class ForwardedClientInterceptor implements ClientHttpRequestInterceptor {
+
+    static final String FORWARDED_FOR = "X-Forwarded-For";
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes) {
+            String clientAddress = ((ServletRequestAttributes) attributes).getRequest().getRemoteAddr();
+            request.getHeaders().set(FORWARDED_FOR, clientAddress);
+        }
+        return execution.execute(request, body);
+    }
+}
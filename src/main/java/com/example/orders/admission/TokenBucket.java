@@ -0,0 +1,46 @@
+package com.example.orders.admission;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket. Instead of counting tokens it tracks the time at which the
+ * bucket would be full again (the generic cell rate algorithm), so the whole state
+ * fits in a single AtomicLong that is updated with compare-and-set.
+ */
+class TokenBucket {
+
+    private final long nanosPerToken;
+    private final long burstNanos;
+    private final AtomicLong fullAt;
+
+    TokenBucket(double tokensPerSecond, int burst, long now) {
+        this.nanosPerToken = (long) (1_000_000_000L / tokensPerSecond);
+        this.burstNanos = nanosPerToken * burst;
+        this.fullAt = new AtomicLong(now);
+    }
+
+    // Returns 0 when a token was taken, otherwise the nanoseconds until one becomes available
+    long tryAcquire(long now) {
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, now) + nanosPerToken;
+            long debt = next - now;
+            if (debt > burstNanos) {
+                return debt - burstNanos;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    // Gives back a token taken by tryAcquire for a request that was then not served
+    void refund() {
+        fullAt.addAndGet(-nanosPerToken);
+    }
+
+    // A bucket that has refilled completely behaves exactly like a new one
+    boolean isIdle(long now) {
+        return fullAt.get() <= now;
+    }
+}
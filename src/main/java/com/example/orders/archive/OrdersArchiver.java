@@ -0,0 +1,40 @@
+package com.example.orders.archive;
+
+import com.example.orders.repository.DatabaseAccess;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Periodically moves orders older than the configured horizon into the
+ * orders_archive table so the hot orders table only holds recent data.
+ */
+@Component
+@Lazy(false) // nothing else references this bean, so lazy initialization would never schedule it
+@ConditionalOnProperty(value = "orders.archive.enabled", havingValue = "true", matchIfMissing = true)
+public class OrdersArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(OrdersArchiver.class);
+
+    private final DatabaseAccess da;
+    private final int horizonDays;
+
+    public OrdersArchiver(DatabaseAccess da, @Value("${orders.archive.horizon-days:365}") int horizonDays) {
+        this.da = da;
+        this.horizonDays = horizonDays;
+    }
+
+    @Scheduled(cron = "${orders.archive.cron:0 0 2 * * *}")
+    public int archiveOldOrders() {
+        LocalDate cutoff = LocalDate.now().minusDays(horizonDays);
+        int archived = da.archiveOrdersBefore(cutoff);
+        log.info("Archived {} orders dated before {}", archived, cutoff);
+        return archived;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.orders.controller;
+
+import com.example.orders.admission.AdmissionControl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+public class AdmissionMetricsController {
+
+    @Autowired
+    private AdmissionControl admissionControl;
+
+    @GetMapping("/admission/metrics")
+    public Map<String, Object> getAdmissionMetrics() {
+        return admissionControl.metrics();
+    }
+}
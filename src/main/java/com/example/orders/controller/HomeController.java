@@ -1,59 +1,179 @@
 package com.example.orders.controller;
 
+import com.example.orders.model.OrderLease;
 import com.example.orders.model.Orders;
-import org.springframework.http.ResponseEntity;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.time.LocalDate;
+import java.util.UUID;
+
 @Controller
 public class HomeController {
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
+
     private final RestTemplate restTemplate;
+    private final OrderRowRenderer rowRenderer;
 
-    public HomeController(RestTemplate restTemplate) {
+    public HomeController(RestTemplate restTemplate, OrderRowRenderer rowRenderer) {
         this.restTemplate = restTemplate;
+        this.rowRenderer = rowRenderer;
     }
 
     @GetMapping("/")
-    public String index(Model model) {
-        ResponseEntity<Orders[]> responseEntity =
-                restTemplate.getForEntity("http://localhost:8080/orders", Orders[].class);
-        model.addAttribute("ordersList", responseEntity.getBody());
+    public String index(Model model, @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size,
+                        @RequestParam(required = false) Long afterId,
+                        @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate afterDate,
+                        HttpServletRequest request, HttpServletResponse response) {
+        addOrdersPage(model, afterDate, afterId, size, request, response);
         model.addAttribute("orders", new Orders());
+        model.addAttribute("idempotencyKey", UUID.randomUUID().toString());
         return "index";
     }
 
     @PostMapping("/insertOrders")
-    public String insertOrders(Model model, @ModelAttribute Orders orders) {
-        restTemplate.postForEntity("http://localhost:8080/orders", orders, String.class);
+    public String insertOrders(Model model, @ModelAttribute Orders orders,
+                               @RequestParam(required = false) String idempotencyKey,
+                               HttpServletRequest request, HttpServletResponse response) {
+        try {
+            if (idempotencyKey == null || idempotencyKey.isEmpty()) {
+                restTemplate.postForEntity("http://localhost:8080/orders", orders, String.class);
+            } else {
+                // Forward the key rendered into the form so a double-submit does not insert twice
+                HttpHeaders headers = new HttpHeaders();
+                headers.set("Idempotency-Key", idempotencyKey);
+                restTemplate.postForEntity("http://localhost:8080/orders", new HttpEntity<>(orders, headers), String.class);
+            }
+        } catch (HttpClientErrorException.TooManyRequests e) {
+            // Keep the input and the key, so resubmitting the form retries the same insert
+            return showIndex(model, orders, idempotencyKey, busyMessage(e), request, response);
+        }
         return "redirect:/";
     }
 
+    // The index loads its own page after the redirect, so nothing is fetched here
     @GetMapping("/insertOrders")
-    public String insertOrdersGet(Model model) {
-        model.addAttribute("ordersList",
-                restTemplate.getForEntity("http://localhost:8080/orders", Orders[].class).getBody());
+    public String insertOrdersGet() {
         return "redirect:/";
     }
 
     @GetMapping("/deleteOrders/{orderId}")
-    public String deleteData(Model model, @PathVariable Long orderId) {
-        restTemplate.delete("http://localhost:8080/orders/" + orderId);
-        model.addAttribute("ordersList",
-                restTemplate.getForEntity("http://localhost:8080/orders", Orders[].class).getBody());
+    public String deleteData(Model model, @PathVariable Long orderId,
+                             HttpServletRequest request, HttpServletResponse response) {
+        try {
+            restTemplate.delete("http://localhost:8080/orders/" + orderId);
+        } catch (HttpClientErrorException.Conflict e) {
+            return showIndex(model, new Orders(), null,
+                    "Order " + orderId + " is being edited by someone else and cannot be deleted now",
+                    request, response);
+        } catch (HttpClientErrorException.TooManyRequests e) {
+            return showIndex(model, new Orders(), null, busyMessage(e), request, response);
+        }
         return "redirect:/";
     }
 
+    // Checks the order out with a lease instead of deleting it, so an abandoned or concurrent edit loses nothing
     @GetMapping("/editOrders/{orderId}")
-    public String editOrder(Model model, @PathVariable Long orderId) {
-        Orders orders = restTemplate.getForEntity("http://localhost:8080/orders/" + orderId,
-                Orders.class).getBody();
-        restTemplate.delete("http://localhost:8080/orders/" + orderId);
-        model.addAttribute("ordersList",
-                restTemplate.getForEntity("http://localhost:8080/orders", Orders[].class).getBody());
+    public String editOrder(Model model, @PathVariable Long orderId,
+                            HttpServletRequest request, HttpServletResponse response) {
+        OrderLease lease;
+        try {
+            lease = restTemplate.postForObject(
+                    "http://localhost:8080/orders/" + orderId + "/lease", null, OrderLease.class);
+        } catch (HttpClientErrorException.Conflict e) {
+            return showIndex(model, new Orders(), null,
+                    "Order " + orderId + " is being edited by someone else, try again later", request, response);
+        } catch (HttpClientErrorException.NotFound e) {
+            return showIndex(model, new Orders(), null, "Order " + orderId + " no longer exists", request, response);
+        } catch (HttpClientErrorException.TooManyRequests e) {
+            return showIndex(model, new Orders(), null, busyMessage(e), request, response);
+        }
+        model.addAttribute("leaseToken", lease.getLeaseToken());
+        return showIndex(model, lease.getOrders(), null, null, request, response);
+    }
+
+    @PostMapping("/updateOrders/{orderId}")
+    public String updateOrder(Model model, @PathVariable Long orderId, @ModelAttribute Orders orders,
+                              @RequestParam String leaseToken,
+                              HttpServletRequest request, HttpServletResponse response) {
+        try {
+            restTemplate.put("http://localhost:8080/orders/" + orderId + "/lease/" + leaseToken, orders);
+        } catch (HttpClientErrorException.Conflict e) {
+            return showIndex(model, new Orders(), null, "Your edit of order " + orderId
+                    + " was not saved because it was left open too long and someone else edited it",
+                    request, response);
+        } catch (HttpClientErrorException.NotFound e) {
+            return showIndex(model, new Orders(), null, "Your edit of order " + orderId
+                    + " was not saved because it was left open too long and the order was deleted or archived",
+                    request, response);
+        } catch (HttpClientErrorException.TooManyRequests e) {
+            // The lease is still held, so keep the edit form open for another try
+            model.addAttribute("leaseToken", leaseToken);
+            return showIndex(model, orders, null, busyMessage(e), request, response);
+        }
+        return "redirect:/";
+    }
+
+    @GetMapping("/cancelEdit/{orderId}")
+    public String cancelEdit(Model model, @PathVariable Long orderId, @RequestParam String leaseToken,
+                             HttpServletRequest request, HttpServletResponse response) {
+        try {
+            restTemplate.delete("http://localhost:8080/orders/" + orderId + "/lease/" + leaseToken);
+        } catch (HttpClientErrorException.TooManyRequests e) {
+            // Not retried: the lease expires on its own
+            return showIndex(model, new Orders(), null, busyMessage(e), request, response);
+        }
+        return "redirect:/";
+    }
+
+    private String showIndex(Model model, Orders orders, String idempotencyKey, String errorMessage,
+                             HttpServletRequest request, HttpServletResponse response) {
+        addOrdersPage(model, null, null, DEFAULT_PAGE_SIZE, request, response);
         model.addAttribute("orders", orders);
+        model.addAttribute("idempotencyKey",
+                idempotencyKey == null || idempotencyKey.isEmpty() ? UUID.randomUUID().toString() : idempotencyKey);
+        if (errorMessage != null) {
+            model.addAttribute("errorMessage", errorMessage);
+        }
         return "index";
     }
+
+    private static String busyMessage(HttpClientErrorException.TooManyRequests e) {
+        String retryAfter = e.getResponseHeaders() == null ? null : e.getResponseHeaders().getFirst("Retry-After");
+        return "The server is busy, please try again" + (retryAfter == null ? "" : " in " + retryAfter + " s");
+    }
+
+    // Loads a single page of orders, continuing after the cursor, so the page cost depends on page size, not table size
+    private void addOrdersPage(Model model, LocalDate afterDate, Long afterId, int size,
+                               HttpServletRequest request, HttpServletResponse response) {
+        size = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        String url = "http://localhost:8080/orders?size=" + size;
+        if (afterId != null) {
+            url += "&afterId=" + afterId + (afterDate == null ? "" : "&afterDate=" + afterDate);
+        }
+        Orders[] ordersPage = restTemplate.getForEntity(url, Orders[].class).getBody();
+        if (ordersPage == null) {
+            ordersPage = new Orders[0];
+        }
+        model.addAttribute("ordersList", ordersPage);
+        model.addAttribute("orderRows", rowRenderer.renderRows(ordersPage, request, response));
+        model.addAttribute("size", size);
+        model.addAttribute("firstPage", afterId == null);
+        model.addAttribute("hasNext", ordersPage.length == size);
+        if (ordersPage.length > 0) {
+            Orders last = ordersPage[ordersPage.length - 1];
+            model.addAttribute("nextAfterId", last.getOrderId());
+            model.addAttribute("nextAfterDate", last.getLocalD());
+        }
+    }
 }
@@ -0,0 +1,75 @@
+package com.example.orders.controller;
+
+import com.example.orders.model.Orders;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.WebContext;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Renders the order table rows of the index page and caches the resulting HTML per order.
+ * A cached row is reused only while the order's content is unchanged, so the row's field
+ * values act as its version; any edit makes the next render replace the entry.
+ */
+@Component
+public class OrderRowRenderer {
+
+    private static final String ROW_TEMPLATE = "fragments/order-row";
+    private static final Set<String> ROW_FRAGMENT = Collections.singleton("row");
+
+    private final ITemplateEngine templateEngine;
+    private final ConcurrentHashMap<Integer, RenderedRow> rows = new ConcurrentHashMap<>();
+    private final int maxCachedRows;
+
+    public OrderRowRenderer(ITemplateEngine templateEngine,
+                            @Value("${orders.view.row-cache-size:5000}") int maxCachedRows) {
+        this.templateEngine = templateEngine;
+        this.maxCachedRows = maxCachedRows;
+    }
+
+    public List<String> renderRows(Orders[] orders, HttpServletRequest request, HttpServletResponse response) {
+        List<String> html = new ArrayList<>(orders.length);
+        for (Orders order : orders) {
+            html.add(renderRow(order, request, response));
+        }
+        return html;
+    }
+
+    private String renderRow(Orders order, HttpServletRequest request, HttpServletResponse response) {
+        RenderedRow cached = order.getOrderId() == null ? null : rows.get(order.getOrderId());
+        if (cached != null && cached.order.equals(order)) {
+            return cached.html;
+        }
+
+        WebContext context = new WebContext(request, response, request.getServletContext(), request.getLocale());
+        context.setVariable("ord", order);
+        String html = templateEngine.process(ROW_TEMPLATE, ROW_FRAGMENT, context);
+
+        if (order.getOrderId() != null) {
+            // Crude but bounded: start over rather than track recency for every row
+            if (rows.size() >= maxCachedRows) {
+                rows.clear();
+            }
+            rows.put(order.getOrderId(), new RenderedRow(order, html));
+        }
+        return html;
+    }
+
+    private static final class RenderedRow {
+        private final Orders order;
+        private final String html;
+
+        private RenderedRow(Orders order, String html) {
+            this.order = order;
+            this.html = html;
+        }
+    }
+}
@@ -1,28 +1,183 @@
 package com.example.orders.controller;
 
+import com.example.orders.idempotency.IdempotencyKeyReusedException;
+import com.example.orders.idempotency.IdempotencyKeyStore;
+import com.example.orders.model.OrderLease;
 import com.example.orders.model.Orders;
 import com.example.orders.repository.DatabaseAccess;
+import com.example.orders.transfer.OrdersFormatException;
+import com.example.orders.transfer.OrdersReader;
+import com.example.orders.transfer.OrdersWriter;
+import com.example.orders.transfer.TransferFormat;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 @RestController
 @RequestMapping("/orders")
 public class OrdersController {
     
+    private static final Logger log = LoggerFactory.getLogger(OrdersController.class);
+    private static final int MAX_PAGE_SIZE = 500;
+    
+    @Value("${orders.edit.lease-seconds:300}")
+    private long editLeaseSeconds;
+    
+    @Value("${orders.transfer.fetch-size:1000}")
+    private int exportFetchSize;
+    
+    @Value("${orders.transfer.batch-size:1000}")
+    private int importBatchSize;
+    
     @Autowired
     private DatabaseAccess da;
     
+    @Autowired
+    private IdempotencyKeyStore idempotencyKeys;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
     @GetMapping
     public List<Orders> getOrderCollection() {
         return da.findAllOrders();
     }
     
+    // The next page starts after the last order of the previous one: afterId, plus afterDate unless it was undated
+    @GetMapping(params = "size")
+    public List<Orders> getOrdersPage(@RequestParam int size,
+                                      @RequestParam(required = false) Long afterId,
+                                      @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate afterDate) {
+        return da.findOrdersPage(afterDate, afterId, Math.min(Math.max(size, 1), MAX_PAGE_SIZE));
+    }
+    
+    @GetMapping(params = "ids")
+    public List<Orders> getOrdersByIds(@RequestParam List<Long> ids) {
+        if (ids.size() > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + MAX_PAGE_SIZE + " ids can be requested at once");
+        }
+        return da.findByOrderIds(ids);
+    }
+    
+    @GetMapping(params = {"from", "to"})
+    public List<Orders> getOrdersBetween(
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate from,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate to) {
+        return da.findOrdersBetween(from, to);
+    }
+    
     @PostMapping(consumes = "application/json")
-    public String postOrder(@RequestBody Orders orders) {
-        da.save(orders);
-        return "http://localhost:8080/orders/";
+    public String postOrder(@RequestBody Orders orders,
+                            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey)
+            throws JsonProcessingException {
+        if (idempotencyKey == null) {
+            return "http://localhost:8080/orders/" + da.save(orders);
+        }
+        // A retried request with the same key gets the original orderId back without a second insert.
+        // The order is compared as re-serialized JSON, so formatting differences do not count as a new body.
+        Integer orderId;
+        try {
+            orderId = idempotencyKeys.execute(idempotencyKey, objectMapper.writeValueAsBytes(orders),
+                    () -> da.save(orders));
+        } catch (IdempotencyKeyReusedException e) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, e.getMessage());
+        }
+        return "http://localhost:8080/orders/" + orderId;
+    }
+    
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportOrders(@RequestParam(defaultValue = "csv") String format) {
+        TransferFormat transferFormat = parseFormat(format);
+        StreamingResponseBody body = out -> {
+            long start = System.nanoTime();
+            AtomicLong exported = new AtomicLong();
+            // Rows go straight from the cursor to the response, so memory use does not grow with the table
+            try (OrdersWriter writer = transferFormat.writer(StreamUtils.nonClosing(out))) {
+                da.streamAllOrders(exportFetchSize, orders -> {
+                    try {
+                        writer.write(orders);
+                        exported.incrementAndGet();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            log.info("Exported {}", throughput(exported.get(), start));
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(transferFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"orders." + transferFormat.getExtension() + "\"")
+                .body(body);
+    }
+    
+    // Form content types are excluded on purpose: the container would consume the body as form parameters
+    @PostMapping(value = "/import", consumes = {"text/csv", "text/plain", "application/octet-stream"})
+    public ResponseEntity<Map<String, Object>> importOrders(@RequestParam(defaultValue = "csv") String format,
+                                                            HttpServletRequest request) throws IOException {
+        TransferFormat transferFormat = parseFormat(format);
+        long start = System.nanoTime();
+        long imported = 0;
+        List<Orders> batch = new ArrayList<>(importBatchSize);
+        String error = null;
+        try {
+            try (OrdersReader reader = transferFormat.reader(request.getInputStream())) {
+                for (Orders orders = reader.read(); orders != null; orders = reader.read()) {
+                    batch.add(orders);
+                    if (batch.size() == importBatchSize) {
+                        da.saveAll(batch);
+                        imported += batch.size();
+                        batch.clear();
+                    }
+                }
+            } catch (OrdersFormatException e) {
+                error = e.getMessage();
+            }
+            // Orders before a bad record are kept either way, so the response says exactly where the import stopped
+            if (!batch.isEmpty()) {
+                da.saveAll(batch);
+                imported += batch.size();
+            }
+        } catch (DataAccessException e) {
+            // saveAll inserts a batch all or nothing, so the count still covers exactly what was stored
+            error = "Batch after the first " + imported + " orders was rejected by the database: "
+                    + e.getMostSpecificCause().getMessage();
+        }
+        Map<String, Object> result = throughput(imported, start);
+        if (error != null) {
+            result.put("error", error);
+            log.warn("Import stopped at invalid input {}", result);
+            return ResponseEntity.badRequest().body(result);
+        }
+        log.info("Imported {}", result);
+        return ResponseEntity.ok(result);
     }
     
     @GetMapping(value = "/{orderId}")
@@ -32,13 +187,75 @@ public class OrdersController {
     
     @PutMapping(value = "/{orderId}")
     public String updateOrderIndividual(@PathVariable Long orderId, @RequestBody Orders orders) {
-        da.updateIndividualOrder(orderId, orders);
+        if (!da.updateIndividualOrder(orderId, orders)) {
+            if (!exists(orderId)) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No order " + orderId);
+            }
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Order " + orderId + " is being edited");
+        }
+        return "Updated";
+    }
+    
+    // Checks the order out for editing; the returned token is needed to save it
+    @PostMapping(value = "/{orderId}/lease")
+    public OrderLease acquireEditLease(@PathVariable Long orderId) {
+        OrderLease lease = da.acquireEditLease(orderId, Duration.ofSeconds(editLeaseSeconds));
+        if (lease == null) {
+            if (!exists(orderId)) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No order " + orderId);
+            }
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Order " + orderId + " is being edited");
+        }
+        return lease;
+    }
+    
+    @PutMapping(value = "/{orderId}/lease/{leaseToken}")
+    public String updateLeasedOrder(@PathVariable Long orderId, @PathVariable String leaseToken,
+                                    @RequestBody Orders orders) {
+        if (!da.updateWithLease(orderId, leaseToken, orders)) {
+            if (!exists(orderId)) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND,
+                        "Order " + orderId + " was deleted or archived after the edit lease expired");
+            }
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "The edit lease on order " + orderId + " expired and someone else changed the order");
+        }
         return "Updated";
     }
     
+    @DeleteMapping(value = "/{orderId}/lease/{leaseToken}")
+    public String releaseEditLease(@PathVariable Long orderId, @PathVariable String leaseToken) {
+        da.releaseEditLease(orderId, leaseToken);
+        return "Lease released";
+    }
+    
     @DeleteMapping(value = "/{orderId}")
     public String deleteOrderById(@PathVariable Long orderId) {
-        da.deleteById(orderId);
+        // Deleting an order that is already gone still succeeds, so a retried delete is harmless
+        if (!da.deleteById(orderId) && exists(orderId)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Order " + orderId + " is being edited");
+        }
         return "Order has been deleted";
     }
+    
+    private boolean exists(Long orderId) {
+        return !da.findByOrderIds(Collections.singletonList(orderId)).isEmpty();
+    }
+    
+    private static TransferFormat parseFormat(String format) {
+        try {
+            return TransferFormat.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown format: " + format);
+        }
+    }
+    
+    private static Map<String, Object> throughput(long orders, long startNanos) {
+        long millis = Math.max(1, (System.nanoTime() - startNanos) / 1_000_000);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("orders", orders);
+        result.put("millis", millis);
+        result.put("ordersPerSecond", orders * 1000 / millis);
+        return result;
+    }
 }
@@ -0,0 +1,12 @@
+package com.example.orders.idempotency;
+
+/**
+ * Thrown when an Idempotency-Key is sent again with a different request body than the
+ * request that first used it.
+ */
+public class IdempotencyKeyReusedException extends RuntimeException {
+
+    public IdempotencyKeyReusedException(String key) {
+        super("Idempotency-Key " + key + " was already used with a different request body");
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.orders.idempotency;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the result of requests carrying an Idempotency-Key so that a retried
+ * request gets the original result back instead of performing the action again.
+ * A key reused with a different request body is rejected rather than answered with the
+ * result of the other request. Keys expire after a TTL and the store holds at most a fixed
+ * number of keys; a key is never dropped while its action is still running.
+ */
+@Component
+public class IdempotencyKeyStore {
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    // Entries in insertion order, so the oldest (and first to expire) sit at the head
+    private final Queue<Entry> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final long ttlNanos;
+    private final int maxKeys;
+
+    public IdempotencyKeyStore(@Value("${orders.idempotency.ttl-seconds:600}") long ttlSeconds,
+                               @Value("${orders.idempotency.max-keys:10000}") int maxKeys) {
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.maxKeys = maxKeys;
+    }
+
+    // Runs the action once per key; concurrent and later duplicates wait for and share its result
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, byte[] requestBody, Supplier<T> action) {
+        byte[] requestHash = sha256(requestBody);
+        while (true) {
+            long now = System.nanoTime();
+            Entry fresh = new Entry(key, requestHash, now);
+            Entry existing = entries.putIfAbsent(key, fresh);
+            if (existing == null) {
+                insertionOrder.add(fresh);
+                evict(now);
+                return (T) run(fresh, action);
+            }
+            if (existing.isExpired(now) && existing.isDone()) {
+                forget(existing);
+                continue;
+            }
+            if (!MessageDigest.isEqual(existing.requestHash, requestHash)) {
+                throw new IdempotencyKeyReusedException(key);
+            }
+            return (T) existing.await();
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // Visible for tests: the eviction queue must not outgrow the map it is evicting from
+    int queuedEntries() {
+        return insertionOrder.size();
+    }
+
+    private Object run(Entry entry, Supplier<?> action) {
+        try {
+            Object result = action.get();
+            entry.result.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            // A failed attempt must not be replayed, so let the client retry with the same key
+            forget(entry);
+            entry.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private void forget(Entry entry) {
+        if (entries.remove(entry.key, entry)) {
+            // Rare (failures and expiry), so the linear scan is cheaper than a second index
+            insertionOrder.remove(entry);
+        }
+    }
+
+    // Entries whose action is still running are skipped: dropping one would let a retry arriving
+    // meanwhile run the action a second time. The store can thus briefly exceed maxKeys by the
+    // number of requests in flight.
+    private void evict(long now) {
+        Iterator<Entry> oldestFirst = insertionOrder.iterator();
+        while (oldestFirst.hasNext()) {
+            Entry oldest = oldestFirst.next();
+            if (!oldest.isExpired(now) && entries.size() <= maxKeys) {
+                return;
+            }
+            if (oldest.isDone() && insertionOrder.remove(oldest)) {
+                entries.remove(oldest.key, oldest);
+            }
+        }
+    }
+
+    private static byte[] sha256(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required on every Java platform", e);
+        }
+    }
+
+    private final class Entry {
+        private final String key;
+        private final byte[] requestHash;
+        private final long createdAt;
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+
+        private Entry(String key, byte[] requestHash, long createdAt) {
+            this.key = key;
+            this.requestHash = requestHash;
+            this.createdAt = createdAt;
+        }
+
+        private boolean isDone() {
+            return result.isDone();
+        }
+
+        private boolean isExpired(long now) {
+            return now - createdAt >= ttlNanos;
+        }
+
+        private Object await() {
+            try {
+                return result.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.orders.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * An order checked out for editing. Only the holder of leaseToken can save changes to
+ * the order until expiresAt; after that anyone may take a new lease on it.
+ */
+public class OrderLease {
+    private Orders orders;
+    private String leaseToken;
+    private LocalDateTime expiresAt;
+
+    // Constructors
+    public OrderLease() {
+    }
+
+    public OrderLease(Orders orders, String leaseToken, LocalDateTime expiresAt) {
+        this.orders = orders;
+        this.leaseToken = leaseToken;
+        this.expiresAt = expiresAt;
+    }
+
+    // Getters and Setters
+    public Orders getOrders() {
+        return orders;
+    }
+
+    public void setOrders(Orders orders) {
+        this.orders = orders;
+    }
+
+    public String getLeaseToken() {
+        return leaseToken;
+    }
+
+    public void setLeaseToken(String leaseToken) {
+        this.leaseToken = leaseToken;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    @Override
+    public String toString() {
+        return "OrderLease{" +
+                "orders=" + orders +
+                ", leaseToken='" + leaseToken + '\'' +
+                ", expiresAt=" + expiresAt +
+                '}';
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.orders.repository;
+
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementCreatorFactory;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.SqlParameter;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.jdbc.core.namedparam.ParsedSql;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A named-parameter statement that is parsed once. The positional SQL, the mapping from
+ * each ? placeholder to its named parameter and the declared parameter types are worked
+ * out up front, so running the statement only binds values. Values are passed in the
+ * order the parameters were declared; a name used several times in the SQL is bound to
+ * every placeholder it appears at.
+ */
+final class CompiledStatement {
+
+    private final String sql;
+    private final int[] placeholderParameters;
+    private final int parameterCount;
+    private final PreparedStatementCreatorFactory factory;
+
+    private CompiledStatement(String namedSql, String generatedKeyColumn, SqlParameter... parameters) {
+        ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement(namedSql);
+        this.sql = NamedParameterUtils.substituteNamedParameters(parsedSql, null);
+        this.parameterCount = parameters.length;
+
+        // Binding each name to its own declared index yields the placeholder -> parameter mapping
+        MapSqlParameterSource indexByName = new MapSqlParameterSource();
+        for (int i = 0; i < parameters.length; i++) {
+            indexByName.addValue(parameters[i].getName(), i);
+        }
+        Object[] placeholderIndexes = NamedParameterUtils.buildValueArray(parsedSql, indexByName, null);
+        List<SqlParameter> declared = new ArrayList<>(placeholderIndexes.length);
+        this.placeholderParameters = new int[placeholderIndexes.length];
+        for (int i = 0; i < placeholderIndexes.length; i++) {
+            placeholderParameters[i] = (Integer) placeholderIndexes[i];
+            declared.add(parameters[placeholderParameters[i]]);
+        }
+
+        this.factory = new PreparedStatementCreatorFactory(sql, declared);
+        if (generatedKeyColumn != null) {
+            factory.setReturnGeneratedKeys(true);
+            factory.setGeneratedKeysColumnNames(generatedKeyColumn);
+        }
+    }
+
+    static CompiledStatement compile(String namedSql, SqlParameter... parameters) {
+        return new CompiledStatement(namedSql, null, parameters);
+    }
+
+    static CompiledStatement compileReturningKey(String namedSql, String keyColumn, SqlParameter... parameters) {
+        return new CompiledStatement(namedSql, keyColumn, parameters);
+    }
+
+    String getSql() {
+        return sql;
+    }
+
+    PreparedStatementCreator creator(Object... values) {
+        return factory.newPreparedStatementCreator(bind(values));
+    }
+
+    PreparedStatementSetter setter(Object... values) {
+        return factory.newPreparedStatementSetter(bind(values));
+    }
+
+    private Object[] bind(Object[] values) {
+        if (values.length != parameterCount) {
+            throw new IllegalArgumentException("Expected " + parameterCount + " values but got " + values.length);
+        }
+        Object[] bound = new Object[placeholderParameters.length];
+        for (int i = 0; i < bound.length; i++) {
+            bound[i] = values[placeholderParameters[i]];
+        }
+        return bound;
+    }
+}
@@ -1,66 +1,301 @@
 package com.example.orders.repository;
 
+import com.example.orders.model.OrderLease;
 import com.example.orders.model.Orders;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.SqlParameter;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static com.example.orders.repository.CompiledStatement.compile;
+import static com.example.orders.repository.CompiledStatement.compileReturningKey;
+import static com.example.orders.repository.OrdersRowMapper.COLUMNS;
 
 @Repository
 public class DatabaseAccess {
     
+    // Every fixed statement is parsed once here rather than on each call
+    private static final CompiledStatement FIND_ALL = compile(
+            "SELECT " + COLUMNS + " FROM orders ORDER BY localD");
+    // Keyset pages over the (localD, orderId) index. Undated orders sort first; every query is a
+    // plain index range, since H2 does not use the index for a row value comparison
+    private static final CompiledStatement FIND_FIRST_PAGE = compile(
+            "SELECT " + COLUMNS + " FROM orders ORDER BY localD, orderId LIMIT :size",
+            new SqlParameter("size", Types.INTEGER));
+    private static final CompiledStatement FIND_PAGE_SAME_DATE = compile(
+            "SELECT " + COLUMNS + " FROM orders WHERE localD = :afterDate AND orderId > :afterId " +
+            "ORDER BY localD, orderId LIMIT :size",
+            new SqlParameter("afterDate", Types.DATE), new SqlParameter("afterId", Types.BIGINT),
+            new SqlParameter("size", Types.INTEGER));
+    private static final CompiledStatement FIND_PAGE_UNDATED = compile(
+            "SELECT " + COLUMNS + " FROM orders WHERE localD IS NULL AND orderId > :afterId " +
+            "ORDER BY localD, orderId LIMIT :size",
+            new SqlParameter("afterId", Types.BIGINT), new SqlParameter("size", Types.INTEGER));
+    private static final CompiledStatement FIND_PAGE_LATER_DATES = compile(
+            "SELECT " + COLUMNS + " FROM orders WHERE localD > :afterDate ORDER BY localD, orderId LIMIT :size",
+            new SqlParameter("afterDate", Types.DATE), new SqlParameter("size", Types.INTEGER));
+    // Every date sorts after this one, which lets the index skip undated orders (IS NOT NULL would scan them)
+    private static final LocalDate BEFORE_ALL_DATES = LocalDate.of(-999_999, 1, 1);
+    private static final CompiledStatement INSERT = compileReturningKey(
+            "INSERT INTO orders(items, localD, localT, quantity, onHand) " +
+            "VALUES(:items, :localD, :localT, :quantity, :onHand)", "orderId",
+            new SqlParameter("items", Types.VARCHAR), new SqlParameter("localD", Types.DATE),
+            new SqlParameter("localT", Types.TIME), new SqlParameter("quantity", Types.INTEGER),
+            new SqlParameter("onHand", Types.BOOLEAN));
+    // Two statements rather than a UNION ALL ... ORDER BY, which would sort, and so build, the whole result
+    private static final CompiledStatement STREAM_ARCHIVED = compile(
+            "SELECT " + COLUMNS + " FROM orders_archive ORDER BY orderId");
+    private static final CompiledStatement STREAM_ALL = compile(
+            "SELECT " + COLUMNS + " FROM orders ORDER BY orderId");
+    private static final CompiledStatement FIND_BY_ID = compile(
+            "SELECT " + COLUMNS + " FROM orders WHERE orderId = :orderId",
+            new SqlParameter("orderId", Types.BIGINT));
+    // Writes without a lease leave orders someone is editing alone; an expired lease is cleared,
+    // so the late save of its holder is refused instead of overwriting this change
+    private static final CompiledStatement DELETE_BY_ID = compile(
+            "DELETE FROM orders WHERE orderId = :orderId AND (editLeaseToken IS NULL OR editLeaseExpires < :now)",
+            new SqlParameter("orderId", Types.BIGINT), new SqlParameter("now", Types.TIMESTAMP));
+    private static final CompiledStatement UPDATE_ITEMS = compile(
+            "UPDATE orders SET items=:items, editLeaseToken=NULL, editLeaseExpires=NULL " +
+            "WHERE orderId = :orderId AND (editLeaseToken IS NULL OR editLeaseExpires < :now)",
+            new SqlParameter("orderId", Types.BIGINT), new SqlParameter("items", Types.VARCHAR),
+            new SqlParameter("now", Types.TIMESTAMP));
+    // Only succeeds while nobody else holds an unexpired lease; the row lock taken by the UPDATE makes it atomic
+    private static final CompiledStatement ACQUIRE_LEASE = compile(
+            "UPDATE orders SET editLeaseToken=:token, editLeaseExpires=:expires WHERE orderId = :orderId " +
+            "AND (editLeaseToken IS NULL OR editLeaseExpires < :now)",
+            new SqlParameter("orderId", Types.BIGINT), new SqlParameter("token", Types.VARCHAR),
+            new SqlParameter("expires", Types.TIMESTAMP), new SqlParameter("now", Types.TIMESTAMP));
+    private static final CompiledStatement UPDATE_WITH_LEASE = compile(
+            "UPDATE orders SET items=:items, localD=:localD, localT=:localT, quantity=:quantity, onHand=:onHand, " +
+            "editLeaseToken=NULL, editLeaseExpires=NULL WHERE orderId = :orderId AND editLeaseToken = :token",
+            new SqlParameter("orderId", Types.BIGINT), new SqlParameter("token", Types.VARCHAR),
+            new SqlParameter("items", Types.VARCHAR), new SqlParameter("localD", Types.DATE),
+            new SqlParameter("localT", Types.TIME), new SqlParameter("quantity", Types.INTEGER),
+            new SqlParameter("onHand", Types.BOOLEAN));
+    private static final CompiledStatement RELEASE_LEASE = compile(
+            "UPDATE orders SET editLeaseToken=NULL, editLeaseExpires=NULL " +
+            "WHERE orderId = :orderId AND editLeaseToken = :token",
+            new SqlParameter("orderId", Types.BIGINT), new SqlParameter("token", Types.VARCHAR));
+    private static final CompiledStatement NEWEST_ARCHIVED = compile(
+            "SELECT MAX(localD) FROM orders_archive");
+    private static final CompiledStatement FIND_HOT_BETWEEN = compile(
+            "SELECT " + COLUMNS + " FROM orders WHERE localD BETWEEN :from AND :to ORDER BY localD",
+            new SqlParameter("from", Types.DATE), new SqlParameter("to", Types.DATE));
+    private static final CompiledStatement FIND_ALL_BETWEEN = compile(
+            "SELECT " + COLUMNS + " FROM orders WHERE localD BETWEEN :from AND :to " +
+            "UNION ALL SELECT " + COLUMNS + " FROM orders_archive WHERE localD BETWEEN :from AND :to " +
+            "ORDER BY localD",
+            new SqlParameter("from", Types.DATE), new SqlParameter("to", Types.DATE));
+    private static final int ARCHIVE_BATCH_SIZE = 1000;
+    // Locking the candidates first means the move below never waits on another transaction's
+    // row lock, so it always sees the row as last committed and cannot act on a stale version
+    // Orders being edited are skipped and archived by a later run once their lease is gone
+    private static final CompiledStatement LOCK_ARCHIVE_BATCH = compile(
+            "SELECT orderId FROM orders WHERE localD < :cutoff AND orderId > :after " +
+            "AND (editLeaseToken IS NULL OR editLeaseExpires < :now) ORDER BY orderId LIMIT :limit FOR UPDATE",
+            new SqlParameter("cutoff", Types.DATE), new SqlParameter("after", Types.BIGINT),
+            new SqlParameter("now", Types.TIMESTAMP), new SqlParameter("limit", Types.INTEGER));
+    
     @Autowired
     protected NamedParameterJdbcTemplate jdbc;
     
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
     // Used to find all stored orders and display in the list
     public List<Orders> findAllOrders() {
-        MapSqlParameterSource namedParameters = new MapSqlParameterSource();
-        String query = "SELECT * FROM orders ORDER BY localD";
-        return jdbc.query(query, namedParameters, new BeanPropertyRowMapper<>(Orders.class));
+        return jdbc.getJdbcOperations().query(FIND_ALL.creator(), OrdersRowMapper.INSTANCE);
     }
     
-    // Saves user entered data in database
-    public void save(Orders orders) {
-        MapSqlParameterSource namedParameters = new MapSqlParameterSource();
+    // Finds the page of orders that follows (afterDate, afterId) in findAllOrders order, with orderId
+    // as a tiebreaker; afterId null means the first page. The cost depends on the page size only.
+    public List<Orders> findOrdersPage(LocalDate afterDate, Long afterId, int size) {
+        JdbcOperations operations = jdbc.getJdbcOperations();
+        if (afterId == null) {
+            return operations.query(FIND_FIRST_PAGE.creator(size), OrdersRowMapper.INSTANCE);
+        }
+        List<Orders> page = afterDate == null
+                ? operations.query(FIND_PAGE_UNDATED.creator(afterId, size), OrdersRowMapper.INSTANCE)
+                : operations.query(FIND_PAGE_SAME_DATE.creator(afterDate, afterId, size), OrdersRowMapper.INSTANCE);
+        if (page.size() < size) {
+            page.addAll(operations.query(FIND_PAGE_LATER_DATES.creator(
+                    afterDate == null ? BEFORE_ALL_DATES : afterDate, size - page.size()), OrdersRowMapper.INSTANCE));
+        }
+        return page;
+    }
+    
+    // Saves user entered data in database and returns the generated orderId
+    public Integer save(Orders orders) {
         KeyHolder generatedKeyHolder = new GeneratedKeyHolder();
-        String query = "INSERT INTO orders(items, localD, localT, quantity, onHand) " +
-                      "VALUES(:items, :localD, :localT, :quantity, :onHand)";
-        
-        namedParameters.addValue("items", orders.getItems());
-        namedParameters.addValue("localD", orders.getLocalD());
-        namedParameters.addValue("localT", orders.getLocalT());
-        namedParameters.addValue("quantity", orders.getQuantity());
-        namedParameters.addValue("onHand", orders.getOnHand());
-        
-        jdbc.update(query, namedParameters, generatedKeyHolder);
+        jdbc.getJdbcOperations().update(INSERT.creator(orders.getItems(), orders.getLocalD(),
+                orders.getLocalT(), orders.getQuantity(), orders.getOnHand()), generatedKeyHolder);
+        return generatedKeyHolder.getKey().intValue();
+    }
+    
+    // Inserts the orders in one JDBC batch; their orderIds are ignored and new ones generated.
+    // Transactional because H2 otherwise keeps the valid rows of a batch in which one row fails.
+    @Transactional
+    public int[] saveAll(List<Orders> orders) {
+        return jdbc.getJdbcOperations().batchUpdate(INSERT.getSql(), new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Orders o = orders.get(i);
+                INSERT.setter(o.getItems(), o.getLocalD(), o.getLocalT(), o.getQuantity(), o.getOnHand())
+                        .setValues(ps);
+            }
+            
+            @Override
+            public int getBatchSize() {
+                return orders.size();
+            }
+        });
+    }
+    
+    // Hands every order, archived ones first, to the callback through forward-only cursors instead of
+    // building a list. Both queries read one snapshot, so an archive run in between can neither hide an
+    // order nor show it twice; H2 only snapshots all tables at once under SERIALIZABLE (REPEATABLE READ
+    // snapshots each table when first read), and a read-only transaction takes no locks there
+    @Transactional(readOnly = true, isolation = Isolation.SERIALIZABLE)
+    public void streamAllOrders(int fetchSize, Consumer<Orders> callback) {
+        jdbc.getJdbcOperations().execute((ConnectionCallback<Void>) connection -> {
+            try (Statement session = connection.createStatement()) {
+                // Embedded H2 ignores the fetch size and builds the whole result before returning
+                // the first row unless lazy execution is on; it is switched off again for the pool
+                session.execute("SET LAZY_QUERY_EXECUTION TRUE");
+                try {
+                    stream(connection, STREAM_ARCHIVED, fetchSize, callback);
+                    stream(connection, STREAM_ALL, fetchSize, callback);
+                } finally {
+                    session.execute("SET LAZY_QUERY_EXECUTION FALSE");
+                }
+            }
+            return null;
+        });
+    }
+    
+    private static void stream(Connection connection, CompiledStatement query, int fetchSize,
+                               Consumer<Orders> callback) throws SQLException {
+        try (PreparedStatement ps = query.creator().createPreparedStatement(connection)) {
+            ps.setFetchSize(fetchSize);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    callback.accept(OrdersRowMapper.INSTANCE.mapRow(rs, rs.getRow()));
+                }
+            }
+        }
     }
     
     // Retrieve data based on orderId
     public Orders findByOrderId(Long orderId) {
-        MapSqlParameterSource namedParameters = new MapSqlParameterSource();
-        String query = "SELECT * FROM orders WHERE orderId = :orderId";
-        namedParameters.addValue("orderId", orderId);
-        return jdbc.query(query, namedParameters, new BeanPropertyRowMapper<>(Orders.class)).get(0);
+        return jdbc.getJdbcOperations().query(FIND_BY_ID.creator(orderId), OrdersRowMapper.INSTANCE).get(0);
     }
     
-    // Deletes user order based on OrderId
-    public void deleteById(Long orderId) {
+    // Retrieves several orders in one query; ids that do not exist are skipped
+    public List<Orders> findByOrderIds(List<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        // The IN list length varies per call, so this one is left to NamedParameterJdbcTemplate's own parse cache
         MapSqlParameterSource namedParameters = new MapSqlParameterSource();
-        String query = "DELETE FROM orders WHERE orderId = :orderId";
-        namedParameters.addValue("orderId", orderId);
-        jdbc.update(query, namedParameters);
+        String query = "SELECT " + COLUMNS + " FROM orders WHERE orderId IN (:orderIds) ORDER BY orderId";
+        namedParameters.addValue("orderIds", orderIds);
+        return jdbc.query(query, namedParameters, OrdersRowMapper.INSTANCE);
     }
     
-    // Updates individual data
-    public void updateIndividualOrder(Long orderId, Orders orders) {
-        MapSqlParameterSource namedParameters = new MapSqlParameterSource();
-        String query = "UPDATE orders SET items=:items WHERE orderId = :orderId";
-        namedParameters.addValue("orderId", orderId).addValue("items", orders.getItems());
-        jdbc.update(query, namedParameters);
+    // Deletes user order based on OrderId; false if it does not exist or is leased for editing
+    public boolean deleteById(Long orderId) {
+        return jdbc.getJdbcOperations().update(DELETE_BY_ID.creator(orderId, LocalDateTime.now())) == 1;
+    }
+    
+    // Updates individual data; false if the order does not exist or is leased for editing
+    public boolean updateIndividualOrder(Long orderId, Orders orders) {
+        return jdbc.getJdbcOperations().update(
+                UPDATE_ITEMS.creator(orderId, orders.getItems(), LocalDateTime.now())) == 1;
+    }
+    
+    // Checks the order out for editing; returns null if it does not exist or someone else holds the lease
+    @Transactional
+    public OrderLease acquireEditLease(Long orderId, Duration leaseDuration) {
+        LocalDateTime now = LocalDateTime.now();
+        String token = UUID.randomUUID().toString();
+        LocalDateTime expires = now.plus(leaseDuration);
+        if (jdbc.getJdbcOperations().update(ACQUIRE_LEASE.creator(orderId, token, expires, now)) == 0) {
+            return null;
+        }
+        return new OrderLease(findByOrderId(orderId), token, expires);
+    }
+    
+    // Saves all fields of a leased order and releases the lease; false if the lease was lost meanwhile
+    public boolean updateWithLease(Long orderId, String leaseToken, Orders orders) {
+        return jdbc.getJdbcOperations().update(UPDATE_WITH_LEASE.creator(orderId, leaseToken, orders.getItems(),
+                orders.getLocalD(), orders.getLocalT(), orders.getQuantity(), orders.getOnHand())) == 1;
+    }
+    
+    // Gives up a lease without saving, so the order can be edited again before the lease expires
+    public boolean releaseEditLease(Long orderId, String leaseToken) {
+        return jdbc.getJdbcOperations().update(RELEASE_LEASE.creator(orderId, leaseToken)) == 1;
+    }
+    
+    // Finds orders dated within [from, to]; the archive is only read when the range reaches into it
+    public List<Orders> findOrdersBetween(LocalDate from, LocalDate to) {
+        LocalDate newestArchived = jdbc.getJdbcOperations().query(NEWEST_ARCHIVED.creator(),
+                rs -> rs.next() ? rs.getObject(1, LocalDate.class) : null);
+        CompiledStatement query = newestArchived != null && !from.isAfter(newestArchived)
+                ? FIND_ALL_BETWEEN : FIND_HOT_BETWEEN;
+        return jdbc.getJdbcOperations().query(query.creator(from, to), OrdersRowMapper.INSTANCE);
+    }
+    
+    // Moves orders dated before the cutoff out of the hot table into orders_archive. Each batch commits
+    // on its own, so a first run over a large table does not keep every old order locked until it ends
+    public int archiveOrdersBefore(LocalDate cutoff) {
+        int archived = 0;
+        long after = 0;
+        LocalDateTime now = LocalDateTime.now();
+        while (true) {
+            long from = after;
+            List<Long> moved = transactionTemplate.execute(status -> archiveBatch(cutoff, from, now));
+            if (moved.isEmpty()) {
+                return archived;
+            }
+            archived += moved.size();
+            after = moved.get(moved.size() - 1);
+        }
+    }
+    
+    // Locks the next batch and moves it in one statement; the lock re-checked the cutoff and keeps
+    // updates out until the commit, so every locked order is moved
+    private List<Long> archiveBatch(LocalDate cutoff, long after, LocalDateTime now) {
+        List<Long> locked = jdbc.getJdbcOperations().query(LOCK_ARCHIVE_BATCH.creator(cutoff, after, now,
+                ARCHIVE_BATCH_SIZE), (rs, rowNum) -> rs.getLong(1));
+        if (!locked.isEmpty()) {
+            MapSqlParameterSource namedParameters = new MapSqlParameterSource("orderIds", locked);
+            jdbc.update("INSERT INTO orders_archive(" + COLUMNS + ") SELECT " + COLUMNS +
+                    " FROM OLD TABLE (DELETE FROM orders WHERE orderId IN (:orderIds))", namedParameters);
+        }
+        return locked;
     }
 }
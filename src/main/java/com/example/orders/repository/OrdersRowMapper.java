@@ -0,0 +1,35 @@
+package com.example.orders.repository;
+
+import com.example.orders.model.Orders;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Maps rows selected with {@link #COLUMNS} to Orders by column position. Unlike
+ * BeanPropertyRowMapper it needs no per-instance property introspection or per-row
+ * reflection, and since it is stateless a single instance is shared by all queries.
+ */
+final class OrdersRowMapper implements RowMapper<Orders> {
+
+    static final String COLUMNS = "orderId, localD, localT, items, quantity, onHand";
+    static final OrdersRowMapper INSTANCE = new OrdersRowMapper();
+
+    private OrdersRowMapper() {
+    }
+
+    @Override
+    public Orders mapRow(ResultSet rs, int rowNum) throws SQLException {
+        Orders orders = new Orders();
+        orders.setOrderId(rs.getObject(1, Integer.class));
+        orders.setLocalD(rs.getObject(2, LocalDate.class));
+        orders.setLocalT(rs.getObject(3, LocalTime.class));
+        orders.setItems(rs.getString(4));
+        orders.setQuantity(rs.getObject(5, Integer.class));
+        orders.setOnHand(rs.getObject(6, Boolean.class));
+        return orders;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.orders.startup;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Used by the appcds Maven profile: once the application is ready it serves one request
+ * (so the request path is loaded too) and then exits, letting the JVM dump the class-data
+ * sharing archive of every class loaded up to that point.
+ */
+@Component
+@Lazy(false)
+@ConditionalOnProperty("orders.startup.training-run")
+public class TrainingRun implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final Logger log = LoggerFactory.getLogger(TrainingRun.class);
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        ConfigurableApplicationContext context = event.getApplicationContext();
+        String port = context.getEnvironment().getProperty("local.server.port", "8080");
+        try {
+            new RestTemplate().getForObject("http://localhost:" + port + "/orders", String.class);
+        } catch (RuntimeException e) {
+            log.warn("Training request failed, archive will only cover startup classes", e);
+        }
+        System.exit(SpringApplication.exit(context));
+    }
+}
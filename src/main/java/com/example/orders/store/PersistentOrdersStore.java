@@ -0,0 +1,67 @@
+package com.example.orders.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+
+/**
+ * Lifecycle of the file-backed orders database (file profile).
+ * On startup the schema is brought up to date and data.sql is only run when the database
+ * is new, so a warm start never re-seeds. While running, a checkpoint is written on a
+ * schedule. On shutdown it is closed with a plain SHUTDOWN, which compacts for at most
+ * MAX_COMPACT_TIME (SHUTDOWN COMPACT would rewrite the whole file with no time limit).
+ */
+@Component
+@Lazy(false)
+@Profile("file")
+public class PersistentOrdersStore {
+
+    private static final Logger log = LoggerFactory.getLogger(PersistentOrdersStore.class);
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbc;
+
+    public PersistentOrdersStore(DataSource dataSource) {
+        this.dataSource = dataSource;
+        this.jdbc = new JdbcTemplate(dataSource);
+    }
+
+    @PostConstruct
+    public void initialize() {
+        long start = System.nanoTime();
+        boolean coldStart = jdbc.queryForObject(
+                "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME = 'ORDERS'", Integer.class) == 0;
+
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator(new ClassPathResource("schema.sql"));
+        if (coldStart) {
+            populator.addScript(new ClassPathResource("data.sql"));
+        }
+        populator.execute(dataSource);
+
+        Long orders = jdbc.queryForObject("SELECT COUNT(*) FROM orders", Long.class);
+        log.info("{} start of file-backed orders store with {} orders in {} ms", coldStart ? "Cold" : "Warm",
+                orders, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Scheduled(cron = "${orders.store.checkpoint-cron:0 */5 * * * *}")
+    public void checkpoint() {
+        jdbc.execute("CHECKPOINT SYNC");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        long start = System.nanoTime();
+        jdbc.execute("SHUTDOWN");
+        log.info("Closed orders store in {} ms", (System.nanoTime() - start) / 1_000_000);
+    }
+}
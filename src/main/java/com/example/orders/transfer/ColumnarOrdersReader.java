@@ -0,0 +1,108 @@
+package com.example.orders.transfer;
+
+import com.example.orders.model.Orders;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UTFDataFormatException;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Reads the format written by {@link ColumnarOrdersWriter}, one row group at a time.
+ */
+class ColumnarOrdersReader implements OrdersReader {
+
+    private final DataInputStream in;
+    private final DataInputStream[] columns = new DataInputStream[ColumnarOrdersWriter.COLUMNS];
+    private int rowGroup;
+    private int remainingRows;
+    private boolean started;
+    private boolean finished;
+
+    ColumnarOrdersReader(InputStream in) {
+        this.in = new DataInputStream(in);
+    }
+
+    @Override
+    public Orders read() throws IOException {
+        try {
+            return readOrders();
+        } catch (EOFException | ZipException | UTFDataFormatException | DateTimeException e) {
+            throw new OrdersFormatException("Row group " + rowGroup + " is corrupt or truncated: " + e, e);
+        }
+    }
+
+    private Orders readOrders() throws IOException {
+        if (remainingRows == 0 && !nextRowGroup()) {
+            return null;
+        }
+        remainingRows--;
+        Orders orders = new Orders();
+        orders.setOrderId(columns[0].readBoolean() ? columns[0].readInt() : null);
+        orders.setLocalD(columns[1].readBoolean() ? LocalDate.ofEpochDay(columns[1].readLong()) : null);
+        orders.setLocalT(columns[2].readBoolean() ? LocalTime.ofNanoOfDay(columns[2].readLong()) : null);
+        orders.setItems(columns[3].readBoolean() ? columns[3].readUTF() : null);
+        orders.setQuantity(columns[4].readBoolean() ? columns[4].readInt() : null);
+        orders.setOnHand(columns[5].readBoolean() ? columns[5].readBoolean() : null);
+        if (orders.getItems() != null && orders.getItems().length() > MAX_ITEMS_LENGTH) {
+            throw new OrdersFormatException("Row group " + rowGroup + ": items longer than " + MAX_ITEMS_LENGTH
+                    + " characters");
+        }
+        return orders;
+    }
+
+    private boolean nextRowGroup() throws IOException {
+        if (finished) {
+            return false;
+        }
+        if (!started) {
+            started = true;
+            if (in.readInt() != ColumnarOrdersWriter.MAGIC) {
+                throw new OrdersFormatException("Not a columnar orders file");
+            }
+        }
+        rowGroup++;
+        remainingRows = in.readInt();
+        if (remainingRows < 0 || remainingRows > ColumnarOrdersWriter.ROW_GROUP_SIZE) {
+            throw new OrdersFormatException("Row group " + rowGroup + " has an invalid row count " + remainingRows);
+        }
+        if (remainingRows == 0) {
+            finished = true;
+            return false;
+        }
+        closeColumns();
+        for (int column = 0; column < columns.length; column++) {
+            // The length comes from the request body, so check it before allocating
+            int length = in.readInt();
+            if (length <= 0 || length > ColumnarOrdersWriter.MAX_BLOCK_LENGTH) {
+                throw new OrdersFormatException("Row group " + rowGroup + " has an invalid block length " + length);
+            }
+            byte[] block = new byte[length];
+            in.readFully(block);
+            columns[column] = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(block)));
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeColumns();
+        in.close();
+    }
+
+    // Releases the native inflaters of the previous row group
+    private void closeColumns() throws IOException {
+        for (DataInputStream column : columns) {
+            if (column != null) {
+                column.close();
+            }
+        }
+    }
+}
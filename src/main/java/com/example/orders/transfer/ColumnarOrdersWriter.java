@@ -0,0 +1,126 @@
+package com.example.orders.transfer;
+
+import com.example.orders.model.Orders;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Local columnar format. Orders are buffered into row groups of {@value #ROW_GROUP_SIZE};
+ * each group is written as its row count followed by one deflate-compressed block per
+ * column, so only one row group is ever held in memory. A row count of 0 ends the file.
+ *
+ * <pre>
+ * file      = MAGIC rowGroup* 0
+ * rowGroup  = rowCount:int (blockLength:int block){6}   -- orderId, localD, localT, items, quantity, onHand
+ * </pre>
+ *
+ * Within a block every value is preceded by a presence byte, so nulls round-trip. A block
+ * is at most {@value #MAX_BLOCK_LENGTH} bytes, which readers enforce before allocating it.
+ */
+class ColumnarOrdersWriter implements OrdersWriter {
+
+    static final int MAGIC = 0x4f434f4c; // "OCOL"
+    static final int COLUMNS = 6;
+    static final int ROW_GROUP_SIZE = 4096;
+    // Far above a full row group of 100-character items (about 1.2 MB before compression)
+    static final int MAX_BLOCK_LENGTH = 4 * 1024 * 1024;
+
+    private final DataOutputStream out;
+    private final Orders[] rowGroup = new Orders[ROW_GROUP_SIZE];
+    private int rows;
+    private boolean magicWritten;
+
+    ColumnarOrdersWriter(OutputStream out) {
+        this.out = new DataOutputStream(out);
+    }
+
+    @Override
+    public void write(Orders orders) throws IOException {
+        rowGroup[rows++] = orders;
+        if (rows == ROW_GROUP_SIZE) {
+            flushRowGroup();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flushRowGroup();
+        out.writeInt(0);
+        out.close();
+    }
+
+    private void flushRowGroup() throws IOException {
+        if (!magicWritten) {
+            out.writeInt(MAGIC);
+            magicWritten = true;
+        }
+        if (rows == 0) {
+            return;
+        }
+        out.writeInt(rows);
+        for (int column = 0; column < COLUMNS; column++) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try (DataOutputStream block = new DataOutputStream(new DeflaterOutputStream(compressed, deflater))) {
+                for (int row = 0; row < rows; row++) {
+                    writeValue(block, column, rowGroup[row]);
+                }
+            } finally {
+                deflater.end();
+            }
+            if (compressed.size() > MAX_BLOCK_LENGTH) {
+                throw new IOException("Column " + column + " block of " + compressed.size() + " bytes exceeds the format limit");
+            }
+            out.writeInt(compressed.size());
+            compressed.writeTo(out);
+        }
+        Arrays.fill(rowGroup, 0, rows, null);
+        rows = 0;
+    }
+
+    private static void writeValue(DataOutputStream block, int column, Orders orders) throws IOException {
+        switch (column) {
+            case 0:
+                block.writeBoolean(orders.getOrderId() != null);
+                if (orders.getOrderId() != null) {
+                    block.writeInt(orders.getOrderId());
+                }
+                break;
+            case 1:
+                block.writeBoolean(orders.getLocalD() != null);
+                if (orders.getLocalD() != null) {
+                    block.writeLong(orders.getLocalD().toEpochDay());
+                }
+                break;
+            case 2:
+                block.writeBoolean(orders.getLocalT() != null);
+                if (orders.getLocalT() != null) {
+                    block.writeLong(orders.getLocalT().toNanoOfDay());
+                }
+                break;
+            case 3:
+                block.writeBoolean(orders.getItems() != null);
+                if (orders.getItems() != null) {
+                    block.writeUTF(orders.getItems());
+                }
+                break;
+            case 4:
+                block.writeBoolean(orders.getQuantity() != null);
+                if (orders.getQuantity() != null) {
+                    block.writeInt(orders.getQuantity());
+                }
+                break;
+            default:
+                block.writeBoolean(orders.getOnHand() != null);
+                if (orders.getOnHand() != null) {
+                    block.writeBoolean(orders.getOnHand());
+                }
+        }
+    }
+}
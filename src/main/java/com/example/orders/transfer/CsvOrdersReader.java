@@ -0,0 +1,166 @@
+package com.example.orders.transfer;
+
+import com.example.orders.model.Orders;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming reader for the CSV written by {@link CsvOrdersWriter}. Quoted fields may contain
+ * commas, doubled quotes and line breaks. The orderId column is read but callers that
+ * insert the orders ignore it, since the database assigns new ids.
+ */
+class CsvOrdersReader implements OrdersReader {
+
+    // No column holds more than the items do, so a longer field or extra fields are rejected while
+    // reading instead of being buffered without limit
+    private static final int MAX_FIELD_LENGTH = MAX_ITEMS_LENGTH;
+    private static final int FIELDS = 6;
+
+    private final Reader in;
+    private boolean headerSkipped;
+    private long records;
+
+    CsvOrdersReader(InputStream in) {
+        this.in = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public Orders read() throws IOException {
+        if (!headerSkipped) {
+            headerSkipped = true;
+            if (readRecord() == null) {
+                return null;
+            }
+        }
+        List<Field> record;
+        do {
+            record = readRecord();
+            if (record == null) {
+                return null;
+            }
+        } while (record.size() == 1 && record.get(0).isNull());
+
+        records++;
+        if (record.size() != FIELDS) {
+            throw new OrdersFormatException("Record " + records + ": expected 6 fields (" + CsvOrdersWriter.HEADER
+                    + ") but found " + record.size());
+        }
+        try {
+            return toOrders(record);
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new OrdersFormatException("Record " + records + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static Orders toOrders(List<Field> record) {
+        Orders orders = new Orders();
+        orders.setOrderId(record.get(0).isNull() ? null : Integer.valueOf(record.get(0).value));
+        orders.setLocalD(record.get(1).isNull() ? null : LocalDate.parse(record.get(1).value));
+        orders.setLocalT(record.get(2).isNull() ? null : LocalTime.parse(record.get(2).value));
+        orders.setItems(record.get(3).isNull() ? null : record.get(3).value);
+        orders.setQuantity(record.get(4).isNull() ? null : Integer.valueOf(record.get(4).value));
+        orders.setOnHand(record.get(5).isNull() ? null : parseBoolean(record.get(5).value));
+        return orders;
+    }
+
+    // Boolean.valueOf would read anything but "true" as false
+    private static Boolean parseBoolean(String value) {
+        if ("true".equals(value)) {
+            return Boolean.TRUE;
+        }
+        if ("false".equals(value)) {
+            return Boolean.FALSE;
+        }
+        throw new IllegalArgumentException("onHand must be true or false but was " + value);
+    }
+
+    // Reads one record, or returns null at the end of the stream
+    private List<Field> readRecord() throws IOException {
+        int c = in.read();
+        if (c < 0) {
+            return null;
+        }
+        List<Field> fields = new ArrayList<>(FIELDS);
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        boolean inQuotes = false;
+        while (true) {
+            if (inQuotes) {
+                if (c < 0) {
+                    throw new OrdersFormatException("Record " + (records + 1) + ": unterminated quoted field");
+                }
+                if (c == '"') {
+                    in.mark(1);
+                    int next = in.read();
+                    if (next == '"') {
+                        append(value, '"');
+                    } else {
+                        inQuotes = false;
+                        in.reset();
+                    }
+                } else {
+                    append(value, (char) c);
+                }
+            } else if (c == '"' && value.length() == 0 && !quoted) {
+                quoted = true;
+                inQuotes = true;
+            } else if (c == ',') {
+                if (fields.size() == FIELDS) {
+                    throw new OrdersFormatException("Record " + (records + 1) + ": more than " + FIELDS + " fields");
+                }
+                fields.add(new Field(value.toString(), quoted));
+                value.setLength(0);
+                quoted = false;
+            } else if (c == '\r' || c == '\n' || c < 0) {
+                if (c == '\r') {
+                    in.mark(1);
+                    if (in.read() != '\n') {
+                        in.reset();
+                    }
+                }
+                fields.add(new Field(value.toString(), quoted));
+                return fields;
+            } else {
+                append(value, (char) c);
+            }
+            c = in.read();
+        }
+    }
+
+    private void append(StringBuilder value, char c) throws OrdersFormatException {
+        if (value.length() == MAX_FIELD_LENGTH) {
+            throw new OrdersFormatException("Record " + (records + 1) + ": field longer than " + MAX_FIELD_LENGTH
+                    + " characters");
+        }
+        value.append(c);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private static final class Field {
+        private final String value;
+        private final boolean quoted;
+
+        private Field(String value, boolean quoted) {
+            this.value = value;
+            this.quoted = quoted;
+        }
+
+        private boolean isNull() {
+            return !quoted && value.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.orders.transfer;
+
+import com.example.orders.model.Orders;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * RFC 4180 CSV with a header row. Items are always quoted, so an unquoted empty
+ * field means null while "" is an empty string.
+ */
+class CsvOrdersWriter implements OrdersWriter {
+
+    static final String HEADER = "orderId,localD,localT,items,quantity,onHand";
+
+    private final Writer out;
+    private boolean headerWritten;
+
+    CsvOrdersWriter(OutputStream out) {
+        this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void write(Orders orders) throws IOException {
+        writeHeader();
+        out.write(field(orders.getOrderId()));
+        out.write(',');
+        out.write(field(orders.getLocalD()));
+        out.write(',');
+        out.write(field(orders.getLocalT()));
+        out.write(',');
+        out.write(quote(orders.getItems()));
+        out.write(',');
+        out.write(field(orders.getQuantity()));
+        out.write(',');
+        out.write(field(orders.getOnHand()));
+        out.write("\r\n");
+    }
+
+    @Override
+    public void close() throws IOException {
+        writeHeader();
+        out.close();
+    }
+
+    private void writeHeader() throws IOException {
+        if (!headerWritten) {
+            out.write(HEADER);
+            out.write("\r\n");
+            headerWritten = true;
+        }
+    }
+
+    private static String field(Object value) {
+        return value == null ? "" : value.toString();
+    }
+
+    private static String quote(String value) {
+        return value == null ? "" : '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.orders.transfer;
+
+import java.io.IOException;
+
+/**
+ * Thrown by an {@link OrdersReader} when the input is not a valid export, as opposed to
+ * the stream itself failing. Orders read before the bad one are still valid.
+ */
+public class OrdersFormatException extends IOException {
+
+    public OrdersFormatException(String message) {
+        super(message);
+    }
+
+    public OrdersFormatException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
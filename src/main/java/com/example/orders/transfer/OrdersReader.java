@@ -0,0 +1,18 @@
+package com.example.orders.transfer;
+
+import com.example.orders.model.Orders;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Reads orders one at a time from an import stream.
+ */
+public interface OrdersReader extends Closeable {
+
+    // Length of the orders.items column; longer values are rejected here rather than by the insert
+    int MAX_ITEMS_LENGTH = 100;
+
+    // Returns the next order, or null once the stream is exhausted
+    Orders read() throws IOException;
+}
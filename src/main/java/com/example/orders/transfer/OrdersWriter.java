@@ -0,0 +1,15 @@
+package com.example.orders.transfer;
+
+import com.example.orders.model.Orders;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Writes orders one at a time to an export stream. Implementations buffer at most a
+ * bounded number of orders, so exports run in constant memory.
+ */
+public interface OrdersWriter extends Closeable {
+
+    void write(Orders orders) throws IOException;
+}
@@ -0,0 +1,54 @@
+package com.example.orders.transfer;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * File formats supported by GET /orders/export and POST /orders/import.
+ */
+public enum TransferFormat {
+
+    CSV("text/csv", "csv") {
+        @Override
+        public OrdersWriter writer(OutputStream out) {
+            return new CsvOrdersWriter(out);
+        }
+
+        @Override
+        public OrdersReader reader(InputStream in) {
+            return new CsvOrdersReader(in);
+        }
+    },
+
+    COLUMNAR("application/octet-stream", "ocol") {
+        @Override
+        public OrdersWriter writer(OutputStream out) {
+            return new ColumnarOrdersWriter(out);
+        }
+
+        @Override
+        public OrdersReader reader(InputStream in) {
+            return new ColumnarOrdersReader(in);
+        }
+    };
+
+    private final String contentType;
+    private final String extension;
+
+    TransferFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public abstract OrdersWriter writer(OutputStream out);
+
+    public abstract OrdersReader reader(InputStream in);
+}
@@ -1,4 +1,4 @@
-CREATE TABLE orders (
+CREATE TABLE IF NOT EXISTS orders (
     orderId INT PRIMARY KEY AUTO_INCREMENT,
     localD DATE,
     localT TIME,
@@ -6,3 +6,22 @@ CREATE TABLE orders (
     quantity INT,
     onHand BOOLEAN
 );
+
+-- Edit lease (see DatabaseAccess.acquireEditLease); added separately so existing file stores get it too
+ALTER TABLE orders ADD COLUMN IF NOT EXISTS editLeaseToken VARCHAR(36);
+ALTER TABLE orders ADD COLUMN IF NOT EXISTS editLeaseExpires TIMESTAMP;
+
+-- Covers both ORDER BY localD and the paged ORDER BY localD, orderId
+CREATE INDEX IF NOT EXISTS orders_localD ON orders(localD, orderId);
+
+-- Cold partition for orders older than the archive horizon (see OrdersArchiver)
+CREATE TABLE IF NOT EXISTS orders_archive (
+    orderId INT PRIMARY KEY,
+    localD DATE,
+    localT TIME,
+    items VARCHAR(100),
+    quantity INT,
+    onHand BOOLEAN
+);
+
+CREATE INDEX IF NOT EXISTS orders_archive_localD ON orders_archive(localD);
@@ -1,18 +1,78 @@
+// Orders already fetched, keyed by orderId
+var ordersCache = {};
+// Rows the user has expanded and not collapsed again, keyed by orderId
+var expandedOrderIds = {};
+// Rows expanded since the last request, fetched together in one batch
+var pendingOrderIds = [];
+var pendingFetch = null;
+
 function getOrders(orderId) {
-    if (document.getElementById("orders" + orderId).innerHTML == "") {
-        fetch('http://localhost:8080/orders/' + orderId)
-            .then(orders => orders.json())
-            .then(function(orders) {
-                var textToDisplay = "<br>";
-                textToDisplay += "Date: " + orders.localD + "<br>";
-                textToDisplay += "Time: " + orders.localT + "<br>";
-                textToDisplay += "Quantity: " + orders.quantity + "<br>";
-                textToDisplay += "On Hand? : " + orders.onHand + "<br>";
-                
-                // Changing Div Tab
-                document.getElementById("orders" + orderId).innerHTML = textToDisplay;
-            });
-    } else {
+    if (expandedOrderIds[orderId]) {
+        // Collapsing also covers a row whose details are still being fetched
+        delete expandedOrderIds[orderId];
         document.getElementById("orders" + orderId).innerHTML = "";
+        return;
+    }
+    expandedOrderIds[orderId] = true;
+    if (ordersCache[orderId]) {
+        showOrders(ordersCache[orderId]);
+        return;
+    }
+    if (pendingOrderIds.indexOf(orderId) < 0) {
+        pendingOrderIds.push(orderId);
     }
+    if (pendingFetch == null) {
+        pendingFetch = setTimeout(fetchPendingOrders, 10);
+    }
+}
+
+function fetchPendingOrders() {
+    var orderIds = pendingOrderIds;
+    pendingOrderIds = [];
+    pendingFetch = null;
+
+    fetch('/orders?ids=' + orderIds.join(','))
+        .then(function(response) {
+            if (!response.ok) {
+                throw new Error("Server answered " + response.status);
+            }
+            return response.json();
+        })
+        .then(function(ordersList) {
+            ordersList.forEach(function(orders) {
+                ordersCache[orders.orderId] = orders;
+                if (expandedOrderIds[orders.orderId]) {
+                    showOrders(orders);
+                }
+            });
+            orderIds.forEach(function(orderId) {
+                if (!ordersCache[orderId]) {
+                    showMessage(orderId, "This order no longer exists");
+                }
+            });
+        })
+        .catch(function(error) {
+            orderIds.forEach(function(orderId) {
+                showMessage(orderId, "Could not load the order details, click again to retry (" + error.message + ")");
+            });
+        });
+}
+
+// Shows a message in a row that is still expanded, and collapses its state so the next click fetches again
+function showMessage(orderId, message) {
+    if (expandedOrderIds[orderId]) {
+        delete expandedOrderIds[orderId];
+        document.getElementById("orders" + orderId).textContent = message;
+    }
+}
+
+function showOrders(orders) {
+    var textToDisplay = "<br>";
+    textToDisplay += "Date: " + orders.localD + "<br>";
+    textToDisplay += "Time: " + orders.localT + "<br>";
+    textToDisplay += "Quantity: " + orders.quantity + "<br>";
+    textToDisplay += "On Hand? : " + orders.onHand + "<br>";
+
+    // Changing Div Tab
+    document.getElementById("orders" + orders.orderId).innerHTML = textToDisplay;
 }
@@ -0,0 +1,85 @@
+package com.example.orders.admission;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdmissionControlTest {
+
+    @Test
+    void burstBeyondBucketShouldBeRateLimitedPerClient() {
+        AdmissionControl admission = new AdmissionControl(1, 2, 10, 0);
+
+        assertEquals(0, admission.tryAdmit("10.0.0.1", "POST /orders"));
+        assertEquals(0, admission.tryAdmit("10.0.0.1", "POST /orders"));
+        assertTrue(admission.tryAdmit("10.0.0.1", "POST /orders") > 0, "Third write in a burst of 2 should wait");
+
+        // Other clients and other endpoints have their own buckets
+        assertEquals(0, admission.tryAdmit("10.0.0.2", "POST /orders"));
+        assertEquals(0, admission.tryAdmit("10.0.0.1", "DELETE /orders/{orderId}"));
+        assertEquals(1L, admission.metrics().get("rateLimited"));
+    }
+
+    @Test
+    void writesBeyondConcurrencyLimitShouldBeShed() {
+        AdmissionControl admission = new AdmissionControl(1000, 1000, 1, 0);
+
+        assertEquals(0, admission.tryAdmit("10.0.0.1", "POST /orders"));
+        assertTrue(admission.tryAdmit("10.0.0.2", "POST /orders") > 0, "Second concurrent write should be shed");
+        assertEquals(1L, admission.metrics().get("concurrencyRejected"));
+
+        admission.release();
+        assertEquals(0, admission.tryAdmit("10.0.0.2", "POST /orders"));
+        assertEquals(1, admission.metrics().get("inFlightWrites"));
+    }
+
+    @Test
+    void writeShedForConcurrencyShouldNotSpendTheClientsToken() {
+        AdmissionControl admission = new AdmissionControl(0.001, 1, 1, 0);
+
+        assertEquals(0, admission.tryAdmit("10.0.0.1", "POST /orders"));
+        assertTrue(admission.tryAdmit("10.0.0.2", "POST /orders") > 0, "Second concurrent write should be shed");
+        admission.release();
+
+        assertEquals(0, admission.tryAdmit("10.0.0.2", "POST /orders"), "The shed write's token should be refunded");
+        assertEquals(0L, admission.metrics().get("rateLimited"));
+    }
+
+    @Test
+    void interceptorShouldAnswer429WithRetryAfter() throws Exception {
+        AdmissionControl admission = new AdmissionControl(1, 1, 10, 0);
+        AdmissionInterceptor interceptor = new AdmissionInterceptor(admission);
+
+        MockHttpServletRequest first = new MockHttpServletRequest("POST", "/orders");
+        assertTrue(interceptor.preHandle(first, new MockHttpServletResponse(), null));
+        interceptor.afterCompletion(first, new MockHttpServletResponse(), null, null);
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        assertFalse(interceptor.preHandle(new MockHttpServletRequest("POST", "/orders"), rejected, null));
+        assertEquals(429, rejected.getStatus());
+        assertEquals("1", rejected.getHeader("Retry-After"));
+
+        // Reads are never throttled
+        assertTrue(interceptor.preHandle(new MockHttpServletRequest("GET", "/orders"), new MockHttpServletResponse(), null));
+        assertEquals(0, admission.metrics().get("inFlightWrites"));
+    }
+
+    @Test
+    void interceptorShouldTrustForwardedAddressOnlyFromLoopback() {
+        MockHttpServletRequest fromUi = new MockHttpServletRequest("POST", "/orders");
+        fromUi.setRemoteAddr("127.0.0.1");
+        fromUi.addHeader("X-Forwarded-For", "10.0.0.7");
+        assertEquals("10.0.0.7", AdmissionInterceptor.clientOf(fromUi));
+
+        MockHttpServletRequest spoofed = new MockHttpServletRequest("POST", "/orders");
+        spoofed.setRemoteAddr("10.0.0.8");
+        spoofed.addHeader("X-Forwarded-For", "10.0.0.9");
+        assertEquals("10.0.0.8", AdmissionInterceptor.clientOf(spoofed));
+
+        MockHttpServletRequest direct = new MockHttpServletRequest("POST", "/orders");
+        direct.setRemoteAddr("::1");
+        assertEquals("::1", AdmissionInterceptor.clientOf(direct));
+    }
+}
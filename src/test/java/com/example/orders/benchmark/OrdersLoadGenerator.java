@@ -0,0 +1,369 @@
+package com.example.orders.benchmark;
+
+import com.example.orders.OrdersApplication;
+import com.example.orders.model.Orders;
+import com.example.orders.properties.OrdersArbitraries;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Drives the /orders endpoints with a configurable mix of reads and writes and reports
+ * throughput and latency percentiles per operation. Order bodies come from
+ * {@link OrdersArbitraries}; reads and updates pick an orderId from a Zipfian
+ * distribution over the seeded orders, so a few hot orders take most of the traffic.
+ * Each worker is a closed loop issuing one request at a time.
+ *
+ * <p>Without --base-url the application is started in-process on a random port with
+ * admission control limits raised far enough not to interfere; with it, an already
+ * running instance is driven over HTTP. Its admission control then applies: seeding
+ * waits out 429 responses, and the report counts them apart from other errors.
+ *
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) \
+ *     com.example.orders.benchmark.OrdersLoadGenerator --concurrency=16 --duration-seconds=30 \
+ *     --read-ratio=0.9 --update-ratio=0.5 --zipf-exponent=1.0 --seed-orders=10000
+ * </pre>
+ */
+public class OrdersLoadGenerator {
+
+    private static final String READ = "GET /orders/{id}";
+    private static final String CREATE = "POST /orders";
+    private static final String UPDATE = "PUT /orders/{id}";
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "16"));
+        int warmupSeconds = Integer.parseInt(options.getOrDefault("warmup-seconds", "5"));
+        int durationSeconds = Integer.parseInt(options.getOrDefault("duration-seconds", "30"));
+        double readRatio = Double.parseDouble(options.getOrDefault("read-ratio", "0.9"));
+        double updateRatio = Double.parseDouble(options.getOrDefault("update-ratio", "0.5"));
+        double zipfExponent = Double.parseDouble(options.getOrDefault("zipf-exponent", "1.0"));
+        int seedOrders = Integer.parseInt(options.getOrDefault("seed-orders", "10000"));
+        String baseUrl = options.get("base-url");
+        if (seedOrders < 1 || concurrency < 1) {
+            throw new IllegalArgumentException("--seed-orders and --concurrency must be at least 1");
+        }
+
+        ConfigurableApplicationContext context = null;
+        if (baseUrl == null) {
+            context = new SpringApplicationBuilder(OrdersApplication.class).run(
+                    "--server.port=0",
+                    "--logging.level.root=WARN",
+                    "--orders.archive.enabled=false",
+                    "--orders.admission.rate-per-second=1000000000",
+                    "--orders.admission.burst=1000000000",
+                    "--orders.admission.max-concurrent-writes=" + concurrency);
+            baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        }
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        try {
+            LoadGenerator generator = new LoadGenerator(baseUrl, workers);
+            System.out.printf("Target %s, %d workers, read ratio %.2f, update share of writes %.2f, "
+                            + "Zipf exponent %.2f%n", baseUrl, concurrency, readRatio, updateRatio, zipfExponent);
+
+            long seedStart = System.nanoTime();
+            long[] orderIds = generator.seed(seedOrders, concurrency);
+            System.out.printf("Seeded %,d orders in %d ms%n", orderIds.length,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - seedStart));
+
+            ZipfianKeys keys = new ZipfianKeys(orderIds, zipfExponent);
+            if (warmupSeconds > 0) {
+                generator.run(concurrency, warmupSeconds, readRatio, updateRatio, keys);
+                System.out.printf("Warmed up for %d s%n", warmupSeconds);
+            }
+            Map<String, Recorder> results = generator.run(concurrency, durationSeconds, readRatio, updateRatio, keys);
+            report(results, durationSeconds);
+        } finally {
+            workers.shutdownNow();
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        return options;
+    }
+
+    private static void report(Map<String, Recorder> results, int durationSeconds) {
+        Recorder total = new Recorder();
+        System.out.printf("%-18s %10s %9s %8s %8s %8s %8s %8s %8s %8s%n",
+                "operation", "requests", "req/s", "errors", "429s", "p50 ms", "p90 ms", "p99 ms", "p999 ms", "max ms");
+        for (Map.Entry<String, Recorder> entry : results.entrySet()) {
+            print(entry.getKey(), entry.getValue(), durationSeconds);
+            total.addAll(entry.getValue());
+        }
+        print("total", total, durationSeconds);
+    }
+
+    private static void print(String name, Recorder recorder, int durationSeconds) {
+        long[] latencies = recorder.sorted();
+        if (latencies.length == 0) {
+            return;
+        }
+        System.out.printf("%-18s %,10d %,9.0f %8d %8d %8.2f %8.2f %8.2f %8.2f %8.2f%n",
+                name, latencies.length, (double) latencies.length / durationSeconds, recorder.errors,
+                recorder.rateLimited,
+                millis(percentile(latencies, 0.50)), millis(percentile(latencies, 0.90)),
+                millis(percentile(latencies, 0.99)), millis(percentile(latencies, 0.999)),
+                millis(latencies[latencies.length - 1]));
+    }
+
+    static long percentile(long[] sorted, double quantile) {
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    /**
+     * Issues the requests. Order bodies are drawn from a pool generated up front, so
+     * generating data does not show up in the measured latencies.
+     */
+    private static class LoadGenerator {
+
+        private static final int BODY_POOL_SIZE = 4096;
+
+        private final String baseUrl;
+        private final ExecutorService workers;
+        private final HttpClient client;
+        private final List<String> orderBodies;
+        private final List<String> itemBodies;
+        private volatile boolean rateLimitNoticed;
+
+        LoadGenerator(String baseUrl, ExecutorService workers) throws Exception {
+            this.baseUrl = baseUrl;
+            this.workers = workers;
+            this.client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .build();
+            ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+            this.orderBodies = new ArrayList<>(BODY_POOL_SIZE);
+            this.itemBodies = new ArrayList<>(BODY_POOL_SIZE);
+            for (Orders order : OrdersArbitraries.orders().sampleStream().limit(BODY_POOL_SIZE)
+                    .collect(Collectors.toList())) {
+                orderBodies.add(json.writeValueAsString(order));
+                itemBodies.add(json.writeValueAsString(new Orders(order.getItems())));
+            }
+        }
+
+        long[] seed(int count, int concurrency) throws Exception {
+            List<Future<long[]>> batches = new ArrayList<>();
+            for (int worker = 0; worker < concurrency; worker++) {
+                int share = count / concurrency + (worker < count % concurrency ? 1 : 0);
+                batches.add(workers.submit(() -> {
+                    long[] ids = new long[share];
+                    for (int i = 0; i < share; i++) {
+                        ids[i] = seedOne();
+                    }
+                    return ids;
+                }));
+            }
+            long[] orderIds = new long[0];
+            for (Future<long[]> batch : batches) {
+                long[] ids = batch.get();
+                orderIds = Arrays.copyOf(orderIds, orderIds.length + ids.length);
+                System.arraycopy(ids, 0, orderIds, orderIds.length - ids.length, ids.length);
+            }
+            return orderIds;
+        }
+
+        // Creates one order, waiting out 429s so seeding a running instance follows its write rate
+        private long seedOne() throws Exception {
+            while (true) {
+                HttpResponse<String> response = send(create(), new Recorder(), CREATE);
+                int status = response.statusCode();
+                if (status == 429) {
+                    if (!rateLimitNoticed) {
+                        rateLimitNoticed = true;
+                        System.err.println("Seeding is rate limited by the target; raise "
+                                + "orders.admission.rate-per-second and orders.admission.burst to seed faster");
+                    }
+                    long retryAfterSeconds = response.headers().firstValueAsLong("Retry-After").orElse(1);
+                    TimeUnit.SECONDS.sleep(Math.max(1, retryAfterSeconds));
+                    continue;
+                }
+                if (status / 100 != 2) {
+                    throw new IllegalStateException("Seeding failed: " + CREATE + " answered " + status
+                            + ": " + response.body());
+                }
+                String location = response.body();
+                return Long.parseLong(location.substring(location.lastIndexOf('/') + 1));
+            }
+        }
+
+        Map<String, Recorder> run(int concurrency, int seconds, double readRatio, double updateRatio,
+                                  ZipfianKeys keys) throws Exception {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+            List<Future<Map<String, Recorder>>> results = new ArrayList<>();
+            for (int worker = 0; worker < concurrency; worker++) {
+                results.add(workers.submit(() -> {
+                    Map<String, Recorder> recorders = new LinkedHashMap<>();
+                    recorders.put(READ, new Recorder());
+                    recorders.put(CREATE, new Recorder());
+                    recorders.put(UPDATE, new Recorder());
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < deadline) {
+                        if (random.nextDouble() < readRatio) {
+                            send(read(keys.next(random)), recorders.get(READ), READ);
+                        } else if (random.nextDouble() < updateRatio) {
+                            send(update(keys.next(random)), recorders.get(UPDATE), UPDATE);
+                        } else {
+                            send(create(), recorders.get(CREATE), CREATE);
+                        }
+                    }
+                    return recorders;
+                }));
+            }
+            Map<String, Recorder> merged = new LinkedHashMap<>();
+            for (Future<Map<String, Recorder>> result : results) {
+                result.get().forEach((name, recorder) -> merged.computeIfAbsent(name, n -> new Recorder()).addAll(recorder));
+            }
+            return merged;
+        }
+
+        private HttpRequest read(long orderId) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + "/orders/" + orderId)).GET().build();
+        }
+
+        private HttpRequest create() {
+            return HttpRequest.newBuilder(URI.create(baseUrl + "/orders"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(pick(orderBodies)))
+                    .build();
+        }
+
+        private HttpRequest update(long orderId) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + "/orders/" + orderId))
+                    .header("Content-Type", "application/json")
+                    .PUT(HttpRequest.BodyPublishers.ofString(pick(itemBodies)))
+                    .build();
+        }
+
+        private static String pick(List<String> bodies) {
+            return bodies.get(ThreadLocalRandom.current().nextInt(bodies.size()));
+        }
+
+        private HttpResponse<String> send(HttpRequest request, Recorder recorder, String operation) throws Exception {
+            long start = System.nanoTime();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            recorder.record(System.nanoTime() - start, response.statusCode());
+            if (response.statusCode() >= 400 && response.statusCode() != 429 && recorder.errors == 1) {
+                System.err.printf("%s answered %d: %s%n", operation, response.statusCode(), response.body());
+            }
+            return response;
+        }
+    }
+
+    /**
+     * Picks orderIds with probability proportional to 1 / rank^exponent. The ids are
+     * shuffled once, so the hot orders are spread over the table rather than being the
+     * oldest ones.
+     */
+    static class ZipfianKeys {
+
+        private final long[] orderIds;
+        private final double[] cumulative;
+
+        ZipfianKeys(long[] orderIds, double exponent) {
+            this.orderIds = orderIds.clone();
+            Random shuffle = new Random(42);
+            for (int i = this.orderIds.length - 1; i > 0; i--) {
+                int j = shuffle.nextInt(i + 1);
+                long swap = this.orderIds[i];
+                this.orderIds[i] = this.orderIds[j];
+                this.orderIds[j] = swap;
+            }
+            this.cumulative = new double[orderIds.length];
+            double sum = 0;
+            for (int rank = 0; rank < orderIds.length; rank++) {
+                sum += 1 / Math.pow(rank + 1, exponent);
+                cumulative[rank] = sum;
+            }
+            for (int rank = 0; rank < cumulative.length; rank++) {
+                cumulative[rank] /= sum;
+            }
+        }
+
+        long next(Random random) {
+            int rank = Arrays.binarySearch(cumulative, random.nextDouble());
+            rank = rank >= 0 ? rank : Math.min(-rank - 1, cumulative.length - 1);
+            return orderIds[rank];
+        }
+    }
+
+    /**
+     * Latencies of one worker for one operation; merged once the run is over. Requests
+     * shed by admission control (429) are counted apart from other errors, since they
+     * measure the configured limits rather than a fault.
+     */
+    static class Recorder {
+
+        private long[] latencies = new long[1024];
+        private int count;
+        private long errors;
+        private long rateLimited;
+
+        void record(long nanos, int status) {
+            add(nanos);
+            if (status == 429) {
+                rateLimited++;
+            } else if (status >= 400) {
+                errors++;
+            }
+        }
+
+        void addAll(Recorder other) {
+            for (int i = 0; i < other.count; i++) {
+                add(other.latencies[i]);
+            }
+            errors += other.errors;
+            rateLimited += other.rateLimited;
+        }
+
+        private void add(long nanos) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+        }
+
+        long[] sorted() {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.orders.benchmark;
+
+import com.example.orders.OrdersApplication;
+import com.example.orders.model.Orders;
+import com.example.orders.repository.DatabaseAccess;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Insert throughput and restart recovery time of the file-backed store (file profile).
+ * Fills a fresh database through DatabaseAccess.save, shuts it down (compaction bounded by
+ * max-compact-time-ms), then measures how long a warm restart takes until the first
+ * page of orders can be read.
+ *
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) \
+ *     com.example.orders.benchmark.PersistentStoreBenchmark 1000000 10000000
+ * </pre>
+ */
+public class PersistentStoreBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        long[] sizes = args.length == 0 ? new long[] {1_000_000, 10_000_000} : new long[args.length];
+        for (int i = 0; i < args.length; i++) {
+            sizes[i] = Long.parseLong(args[i]);
+        }
+        for (long size : sizes) {
+            run(size);
+        }
+    }
+
+    private static void run(long rows) throws Exception {
+        Path dir = Paths.get("target", "store-benchmark-" + rows);
+        FileSystemUtils.deleteRecursively(dir);
+        Files.createDirectories(dir);
+
+        ConfigurableApplicationContext context = start(dir);
+        DatabaseAccess da = context.getBean(DatabaseAccess.class);
+        Orders order = new Orders("Benchmark item");
+        order.setLocalT(LocalTime.NOON);
+        order.setQuantity(1);
+        order.setOnHand(true);
+
+        long insertStart = System.nanoTime();
+        for (long i = 0; i < rows; i++) {
+            order.setLocalD(LocalDate.of(2020, 1, 1).plusDays(i % 2000));
+            da.save(order);
+        }
+        long insertNanos = System.nanoTime() - insertStart;
+
+        long closeStart = System.nanoTime();
+        context.close();
+        long closeNanos = System.nanoTime() - closeStart;
+
+        long restartStart = System.nanoTime();
+        context = start(dir);
+        int firstPage = context.getBean(DatabaseAccess.class).findOrdersPage(null, null, 50).size();
+        long restartNanos = System.nanoTime() - restartStart;
+        context.close();
+
+        System.out.printf("%,d orders: insert %,.0f orders/s (%d s), shutdown %d ms, "
+                        + "warm restart to first page (%d rows) %d ms, store size %,d MB%n",
+                rows, rows / (insertNanos / 1e9), TimeUnit.NANOSECONDS.toSeconds(insertNanos),
+                TimeUnit.NANOSECONDS.toMillis(closeNanos), firstPage, TimeUnit.NANOSECONDS.toMillis(restartNanos),
+                Files.size(dir.resolve("orders.mv.db")) / (1024 * 1024));
+    }
+
+    private static ConfigurableApplicationContext start(Path dir) {
+        // Passed as arguments so they take precedence over application-file.properties
+        return new SpringApplicationBuilder(OrdersApplication.class)
+                .profiles("file")
+                .run("--server.port=0",
+                        "--orders.store.dir=" + dir.toAbsolutePath(),
+                        "--orders.archive.enabled=false",
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=WARN",
+                        "--logging.level.com.example.orders.store=INFO");
+    }
+}
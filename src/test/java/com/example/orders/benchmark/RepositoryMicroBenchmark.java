@@ -0,0 +1,91 @@
+package com.example.orders.benchmark;
+
+import com.example.orders.OrdersApplication;
+import com.example.orders.model.Orders;
+import com.example.orders.repository.DatabaseAccess;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.function.LongConsumer;
+
+/**
+ * Per-call cost of the hot repository paths. Runs findByOrderId and save through
+ * DatabaseAccess and through the way they used to be written (named SQL, a fresh
+ * parameter source and a fresh BeanPropertyRowMapper on every call), against the
+ * in-memory database, and prints nanoseconds per operation.
+ *
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) \
+ *     com.example.orders.benchmark.RepositoryMicroBenchmark 200000
+ * </pre>
+ */
+public class RepositoryMicroBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    public static void main(String[] args) {
+        int iterations = args.length == 0 ? 200_000 : Integer.parseInt(args[0]);
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(OrdersApplication.class)
+                .run("--server.port=0", "--orders.archive.enabled=false", "--logging.level.root=WARN");
+        try {
+            DatabaseAccess da = context.getBean(DatabaseAccess.class);
+            NamedParameterJdbcTemplate jdbc = context.getBean(NamedParameterJdbcTemplate.class);
+            Orders order = new Orders("Benchmark item");
+            order.setLocalD(LocalDate.of(2024, 1, 1));
+            order.setLocalT(LocalTime.NOON);
+            order.setQuantity(1);
+            order.setOnHand(true);
+            long firstId = da.save(order);
+            for (int i = 1; i < ROWS; i++) {
+                da.save(order);
+            }
+
+            for (int round = 0; round < 3; round++) {
+                System.out.printf("round %d%n", round + 1);
+                measure("findByOrderId legacy  ", iterations, i -> legacyFindByOrderId(jdbc, firstId + i % ROWS));
+                measure("findByOrderId compiled", iterations, i -> da.findByOrderId(firstId + i % ROWS));
+                measure("save legacy           ", iterations / 4, i -> legacySave(jdbc, order));
+                measure("save compiled         ", iterations / 4, i -> da.save(order));
+            }
+        } finally {
+            context.close();
+        }
+    }
+
+    private static void measure(String name, int iterations, LongConsumer operation) {
+        long start = System.nanoTime();
+        for (long i = 0; i < iterations; i++) {
+            operation.accept(i);
+        }
+        long nanos = System.nanoTime() - start;
+        System.out.printf("  %s %,8.0f ns/op%n", name, (double) nanos / iterations);
+    }
+
+    private static Orders legacyFindByOrderId(NamedParameterJdbcTemplate jdbc, long orderId) {
+        MapSqlParameterSource namedParameters = new MapSqlParameterSource();
+        String query = "SELECT * FROM orders WHERE orderId = :orderId";
+        namedParameters.addValue("orderId", orderId);
+        return jdbc.query(query, namedParameters, new BeanPropertyRowMapper<>(Orders.class)).get(0);
+    }
+
+    private static Integer legacySave(NamedParameterJdbcTemplate jdbc, Orders orders) {
+        MapSqlParameterSource namedParameters = new MapSqlParameterSource();
+        GeneratedKeyHolder generatedKeyHolder = new GeneratedKeyHolder();
+        String query = "INSERT INTO orders(items, localD, localT, quantity, onHand) " +
+                      "VALUES(:items, :localD, :localT, :quantity, :onHand)";
+        namedParameters.addValue("items", orders.getItems());
+        namedParameters.addValue("localD", orders.getLocalD());
+        namedParameters.addValue("localT", orders.getLocalT());
+        namedParameters.addValue("quantity", orders.getQuantity());
+        namedParameters.addValue("onHand", orders.getOnHand());
+        jdbc.update(query, namedParameters, generatedKeyHolder);
+        return generatedKeyHolder.getKey().intValue();
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.orders.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repeatable time-to-first-request benchmark. Launches the application command several
+ * times, measures the time from process start until GET /orders answers, and prints
+ * min/median/max. Needs only the JDK, so it runs straight from target/test-classes:
+ *
+ * <pre>
+ * mvn -Pappcds package
+ * java -cp target/test-classes com.example.orders.benchmark.StartupBenchmark [runs] [port] -- &lt;command...&gt;
+ * </pre>
+ *
+ * Without a command it launches the AppCDS build produced by the appcds profile.
+ */
+public class StartupBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int runs = args.length > 0 && !args[0].equals("--") ? Integer.parseInt(args[0]) : 10;
+        int port = args.length > 1 && !args[1].equals("--") ? Integer.parseInt(args[1]) : 18080;
+        List<String> command = commandAfterSeparator(args);
+        File workingDirectory = new File(".");
+        if (command.isEmpty()) {
+            // The class path must match the one the archive was dumped with, relative paths included
+            command = defaultCommand();
+            workingDirectory = new File("target/appcds");
+        }
+        List<String> launch = new ArrayList<>(command);
+        launch.add("--server.port=" + port);
+        System.out.println("Command: " + String.join(" ", launch));
+
+        List<Long> timings = new ArrayList<>();
+        for (int run = 1; run <= runs; run++) {
+            long millis = timeToFirstRequest(launch, port, workingDirectory);
+            timings.add(millis);
+            System.out.printf("run %2d: %d ms%n", run, millis);
+        }
+        Collections.sort(timings);
+        System.out.printf("time-to-first-request over %d runs: min %d ms, median %d ms, max %d ms%n",
+                runs, timings.get(0), timings.get(timings.size() / 2), timings.get(timings.size() - 1));
+    }
+
+    static long timeToFirstRequest(List<String> command, int port, File workingDirectory) throws Exception {
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .directory(workingDirectory)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            while (!answers(port)) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Application exited with code " + process.exitValue());
+                }
+                if (System.nanoTime() - start > TimeUnit.SECONDS.toNanos(60)) {
+                    throw new IllegalStateException("Application did not answer within 60 seconds");
+                }
+                Thread.sleep(5);
+            }
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private static boolean answers(int port) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + "/orders").openConnection();
+            connection.setConnectTimeout(100);
+            connection.setReadTimeout(5000);
+            try {
+                return connection.getResponseCode() == 200;
+            } finally {
+                connection.disconnect();
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static List<String> commandAfterSeparator(String[] args) {
+        int separator = Arrays.asList(args).indexOf("--");
+        return separator < 0 ? new ArrayList<>() : new ArrayList<>(Arrays.asList(args).subList(separator + 1, args.length));
+    }
+
+    private static List<String> defaultCommand() {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        return Arrays.asList(java,
+                "-XX:SharedArchiveFile=orders.jsa",
+                "-cp", "orders-management-system-1.0.0-app.jar" + File.pathSeparator + "lib/*",
+                "com.example.orders.OrdersApplication",
+                "--spring.profiles.active=prod");
+    }
+}
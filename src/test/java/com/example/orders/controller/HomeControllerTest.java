@@ -1,23 +1,32 @@
 package com.example.orders.controller;
 
+import com.example.orders.model.OrderLease;
 import com.example.orders.model.Orders;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(HomeController.class)
+@Import(OrderRowRenderer.class)
 public class HomeControllerTest {
 
     @Autowired
@@ -39,7 +48,7 @@ public class HomeControllerTest {
         Orders[] ordersArray = {order1};
         ResponseEntity<Orders[]> responseEntity = ResponseEntity.ok(ordersArray);
 
-        when(restTemplate.getForEntity("http://localhost:8080/orders", Orders[].class))
+        when(restTemplate.getForEntity("http://localhost:8080/orders?size=50", Orders[].class))
                 .thenReturn(responseEntity);
 
         // Act & Assert
@@ -47,9 +56,34 @@ public class HomeControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(view().name("index"))
                 .andExpect(model().attributeExists("ordersList"))
-                .andExpect(model().attributeExists("orders"));
+                .andExpect(model().attributeExists("orderRows"))
+                .andExpect(model().attributeExists("orders"))
+                .andExpect(model().attributeExists("idempotencyKey"))
+                .andExpect(content().string(containsString("getOrders(1)")))
+                .andExpect(content().string(containsString("/editOrders/1")));
+
+        verify(restTemplate, times(1)).getForEntity("http://localhost:8080/orders?size=50", Orders[].class);
+    }
+
+    @Test
+    void indexShouldRequestOnlyThePageAfterTheCursor() throws Exception {
+        // Arrange
+        Orders order = new Orders("Item");
+        order.setOrderId(21);
+        order.setLocalD(LocalDate.of(2024, 1, 2));
+        Orders[] ordersArray = {order};
+        when(restTemplate.getForEntity("http://localhost:8080/orders?size=1&afterId=20&afterDate=2024-01-01", Orders[].class))
+                .thenReturn(ResponseEntity.ok(ordersArray));
+
+        // Act & Assert
+        mockMvc.perform(get("/").param("size", "1").param("afterId", "20").param("afterDate", "2024-01-01"))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("hasNext", true))
+                .andExpect(content().string(containsString("First page")))
+                .andExpect(content().string(containsString("/?size=1&amp;afterId=21&amp;afterDate=2024-01-02")));
 
-        verify(restTemplate, times(1)).getForEntity("http://localhost:8080/orders", Orders[].class);
+        verify(restTemplate, times(1)).getForEntity(
+                "http://localhost:8080/orders?size=1&afterId=20&afterDate=2024-01-01", Orders[].class);
     }
 
     @Test
@@ -74,20 +108,55 @@ public class HomeControllerTest {
     }
 
     @Test
-    void insertOrdersGetShouldRedirectToHome() throws Exception {
+    void insertOrdersShouldForwardIdempotencyKeyHeader() throws Exception {
         // Arrange
-        Orders[] ordersArray = {};
-        ResponseEntity<Orders[]> responseEntity = ResponseEntity.ok(ordersArray);
+        ResponseEntity<String> postResponse = ResponseEntity.ok("http://localhost:8080/orders/1");
+        when(restTemplate.postForEntity(eq("http://localhost:8080/orders"), any(HttpEntity.class), eq(String.class)))
+                .thenReturn(postResponse);
 
-        when(restTemplate.getForEntity("http://localhost:8080/orders", Orders[].class))
-                .thenReturn(responseEntity);
+        // Act & Assert
+        mockMvc.perform(post("/insertOrders")
+                        .param("items", "TestItem")
+                        .param("idempotencyKey", "form-key-1"))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/"));
+
+        verify(restTemplate, times(1)).postForEntity(eq("http://localhost:8080/orders"),
+                argThat((HttpEntity<?> entity) -> "form-key-1".equals(entity.getHeaders().getFirst("Idempotency-Key"))),
+                eq(String.class));
+    }
+
+    @Test
+    void insertOrdersShouldKeepFormAndKeyWhenRateLimited() throws Exception {
+        // Arrange
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Retry-After", "2");
+        when(restTemplate.postForEntity(eq("http://localhost:8080/orders"), any(HttpEntity.class), eq(String.class)))
+                .thenThrow(HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests",
+                        headers, null, null));
+        when(restTemplate.getForEntity("http://localhost:8080/orders?size=50", Orders[].class))
+                .thenReturn(ResponseEntity.ok(new Orders[0]));
+
+        // Act & Assert
+        mockMvc.perform(post("/insertOrders")
+                        .param("items", "TestItem")
+                        .param("idempotencyKey", "form-key-1"))
+                .andExpect(status().isOk())
+                .andExpect(view().name("index"))
+                .andExpect(model().attribute("idempotencyKey", "form-key-1"))
+                .andExpect(content().string(containsString("please try again in 2 s")))
+                .andExpect(content().string(containsString("value=\"TestItem\"")));
+    }
 
+    @Test
+    void insertOrdersGetShouldRedirectToHome() throws Exception {
         // Act & Assert
         mockMvc.perform(get("/insertOrders"))
                 .andExpect(status().is3xxRedirection())
                 .andExpect(redirectedUrl("/"));
 
-        verify(restTemplate, times(1)).getForEntity("http://localhost:8080/orders", Orders[].class);
+        // The redirected index loads a page itself, so the full table is never fetched
+        verifyNoInteractions(restTemplate);
     }
 
     @Test
@@ -95,22 +164,17 @@ public class HomeControllerTest {
         // Arrange
         doNothing().when(restTemplate).delete("http://localhost:8080/orders/1");
 
-        Orders[] ordersArray = {};
-        ResponseEntity<Orders[]> responseEntity = ResponseEntity.ok(ordersArray);
-        when(restTemplate.getForEntity("http://localhost:8080/orders", Orders[].class))
-                .thenReturn(responseEntity);
-
         // Act & Assert
         mockMvc.perform(get("/deleteOrders/1"))
                 .andExpect(status().is3xxRedirection())
                 .andExpect(redirectedUrl("/"));
 
         verify(restTemplate, times(1)).delete("http://localhost:8080/orders/1");
-        verify(restTemplate, times(1)).getForEntity("http://localhost:8080/orders", Orders[].class);
+        verify(restTemplate, never()).getForEntity("http://localhost:8080/orders", Orders[].class);
     }
 
     @Test
-    void editOrderShouldFetchDeleteAndPopulateForm() throws Exception {
+    void editOrderShouldLeaseOrderAndPopulateUpdateForm() throws Exception {
         // Arrange
         Orders order = new Orders("EditItem");
         order.setOrderId(1);
@@ -119,26 +183,123 @@ public class HomeControllerTest {
         order.setQuantity(5);
         order.setOnHand(true);
 
-        ResponseEntity<Orders> orderResponse = ResponseEntity.ok(order);
-        when(restTemplate.getForEntity("http://localhost:8080/orders/1", Orders.class))
-                .thenReturn(orderResponse);
-
-        doNothing().when(restTemplate).delete("http://localhost:8080/orders/1");
+        OrderLease lease = new OrderLease(order, "lease-1", LocalDateTime.of(2023, 1, 1, 10, 5));
+        when(restTemplate.postForObject("http://localhost:8080/orders/1/lease", null, OrderLease.class))
+                .thenReturn(lease);
 
         Orders[] ordersArray = {};
         ResponseEntity<Orders[]> responseEntity = ResponseEntity.ok(ordersArray);
-        when(restTemplate.getForEntity("http://localhost:8080/orders", Orders[].class))
+        when(restTemplate.getForEntity("http://localhost:8080/orders?size=50", Orders[].class))
                 .thenReturn(responseEntity);
 
         // Act & Assert
         mockMvc.perform(get("/editOrders/1"))
                 .andExpect(status().isOk())
                 .andExpect(view().name("index"))
-                .andExpect(model().attributeExists("orders"))
-                .andExpect(model().attributeExists("ordersList"));
+                .andExpect(model().attribute("orders", order))
+                .andExpect(model().attribute("leaseToken", "lease-1"))
+                .andExpect(model().attributeExists("ordersList"))
+                .andExpect(content().string(containsString("action=\"/updateOrders/1\"")))
+                .andExpect(content().string(containsString("/cancelEdit/1?leaseToken=lease-1")));
 
-        verify(restTemplate, times(1)).getForEntity("http://localhost:8080/orders/1", Orders.class);
-        verify(restTemplate, times(1)).delete("http://localhost:8080/orders/1");
-        verify(restTemplate, times(1)).getForEntity("http://localhost:8080/orders", Orders[].class);
+        verify(restTemplate, times(1)).postForObject("http://localhost:8080/orders/1/lease", null, OrderLease.class);
+        verify(restTemplate, never()).delete(anyString());
+        verify(restTemplate, times(1)).getForEntity("http://localhost:8080/orders?size=50", Orders[].class);
+    }
+
+    @Test
+    void editOrderShouldReportOrderAlreadyBeingEdited() throws Exception {
+        // Arrange
+        when(restTemplate.postForObject("http://localhost:8080/orders/1/lease", null, OrderLease.class))
+                .thenThrow(HttpClientErrorException.create(HttpStatus.CONFLICT, "Conflict", null, null, null));
+        when(restTemplate.getForEntity("http://localhost:8080/orders?size=50", Orders[].class))
+                .thenReturn(ResponseEntity.ok(new Orders[0]));
+
+        // Act & Assert
+        mockMvc.perform(get("/editOrders/1"))
+                .andExpect(status().isOk())
+                .andExpect(view().name("index"))
+                .andExpect(model().attributeExists("errorMessage"))
+                .andExpect(model().attributeDoesNotExist("leaseToken"))
+                .andExpect(content().string(containsString("action=\"/insertOrders\"")));
+    }
+
+    @Test
+    void editOrderShouldReportMissingOrder() throws Exception {
+        // Arrange
+        when(restTemplate.postForObject("http://localhost:8080/orders/1/lease", null, OrderLease.class))
+                .thenThrow(HttpClientErrorException.create(HttpStatus.NOT_FOUND, "Not Found", null, null, null));
+        when(restTemplate.getForEntity("http://localhost:8080/orders?size=50", Orders[].class))
+                .thenReturn(ResponseEntity.ok(new Orders[0]));
+
+        // Act & Assert
+        mockMvc.perform(get("/editOrders/1"))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("errorMessage", "Order 1 no longer exists"))
+                .andExpect(model().attributeDoesNotExist("leaseToken"));
+    }
+
+    @Test
+    void updateOrderShouldPutWithLeaseAndRedirect() throws Exception {
+        // Act & Assert
+        mockMvc.perform(post("/updateOrders/1")
+                        .param("orderId", "1")
+                        .param("items", "Edited")
+                        .param("localD", "2023-01-01")
+                        .param("localT", "10:00")
+                        .param("quantity", "6")
+                        .param("leaseToken", "lease-1"))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/"));
+
+        verify(restTemplate, times(1)).put(eq("http://localhost:8080/orders/1/lease/lease-1"),
+                argThat(o -> o instanceof Orders && "Edited".equals(((Orders) o).getItems())
+                        && ((Orders) o).getQuantity() == 6));
+    }
+
+    @Test
+    void updateOrderShouldReportLostLease() throws Exception {
+        // Arrange
+        doThrow(HttpClientErrorException.create(HttpStatus.CONFLICT, "Conflict", null, null, null))
+                .when(restTemplate).put(eq("http://localhost:8080/orders/1/lease/lease-1"), any(Orders.class));
+        when(restTemplate.getForEntity("http://localhost:8080/orders?size=50", Orders[].class))
+                .thenReturn(ResponseEntity.ok(new Orders[0]));
+
+        // Act & Assert
+        mockMvc.perform(post("/updateOrders/1")
+                        .param("items", "Edited")
+                        .param("leaseToken", "lease-1"))
+                .andExpect(status().isOk())
+                .andExpect(view().name("index"))
+                .andExpect(model().attributeExists("errorMessage"));
+    }
+
+    @Test
+    void updateOrderShouldKeepLeaseWhenRateLimited() throws Exception {
+        // Arrange
+        doThrow(HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests", null, null, null))
+                .when(restTemplate).put(eq("http://localhost:8080/orders/1/lease/lease-1"), any(Orders.class));
+        when(restTemplate.getForEntity("http://localhost:8080/orders?size=50", Orders[].class))
+                .thenReturn(ResponseEntity.ok(new Orders[0]));
+
+        // Act & Assert
+        mockMvc.perform(post("/updateOrders/1")
+                        .param("orderId", "1")
+                        .param("items", "Edited")
+                        .param("leaseToken", "lease-1"))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("leaseToken", "lease-1"))
+                .andExpect(model().attributeExists("errorMessage"))
+                .andExpect(content().string(containsString("action=\"/updateOrders/1\"")));
+    }
+
+    @Test
+    void cancelEditShouldReleaseLease() throws Exception {
+        // Act & Assert
+        mockMvc.perform(get("/cancelEdit/1").param("leaseToken", "lease-1"))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/"));
+
+        verify(restTemplate, times(1)).delete("http://localhost:8080/orders/1/lease/lease-1");
     }
 }
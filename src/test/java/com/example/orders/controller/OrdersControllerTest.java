@@ -1,5 +1,7 @@
 package com.example.orders.controller;
 
+import com.example.orders.idempotency.IdempotencyKeyStore;
+import com.example.orders.model.OrderLease;
 import com.example.orders.model.Orders;
 import com.example.orders.repository.DatabaseAccess;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -7,21 +9,35 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.startsWith;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(OrdersController.class)
+@Import(IdempotencyKeyStore.class)
 public class OrdersControllerTest {
 
     @Autowired
@@ -65,6 +81,74 @@ public class OrdersControllerTest {
         verify(databaseAccess, times(1)).findAllOrders();
     }
 
+    @Test
+    void getOrdersPageShouldClampPageSize() throws Exception {
+        // Arrange
+        when(databaseAccess.findOrdersPage(null, null, 500)).thenReturn(List.of());
+
+        // Act & Assert
+        mockMvc.perform(get("/orders").param("size", "100000"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[]"));
+
+        verify(databaseAccess, times(1)).findOrdersPage(null, null, 500);
+        verify(databaseAccess, never()).findAllOrders();
+    }
+
+    @Test
+    void getOrdersPageShouldContinueAfterCursor() throws Exception {
+        // Arrange
+        when(databaseAccess.findOrdersPage(LocalDate.of(2024, 1, 1), 17L, 50)).thenReturn(List.of());
+
+        // Act & Assert
+        mockMvc.perform(get("/orders").param("size", "50").param("afterId", "17").param("afterDate", "2024-01-01"))
+                .andExpect(status().isOk());
+
+        verify(databaseAccess, times(1)).findOrdersPage(LocalDate.of(2024, 1, 1), 17L, 50);
+    }
+
+    @Test
+    void getOrdersByIdsShouldFetchAllInOneCall() throws Exception {
+        // Arrange
+        Orders order1 = new Orders("Item1");
+        order1.setOrderId(1);
+        Orders order3 = new Orders("Item3");
+        order3.setOrderId(3);
+
+        when(databaseAccess.findByOrderIds(List.of(1L, 2L, 3L))).thenReturn(List.of(order1, order3));
+
+        // Act & Assert
+        mockMvc.perform(get("/orders").param("ids", "1,2,3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].orderId").value(1))
+                .andExpect(jsonPath("$[1].orderId").value(3));
+
+        verify(databaseAccess, times(1)).findByOrderIds(List.of(1L, 2L, 3L));
+        verify(databaseAccess, never()).findByOrderId(any());
+    }
+
+    @Test
+    void getOrdersBetweenShouldQueryDateRange() throws Exception {
+        // Arrange
+        Orders order = new Orders("Archived");
+        order.setOrderId(7);
+        order.setLocalD(LocalDate.of(2020, 5, 1));
+
+        LocalDate from = LocalDate.of(2020, 1, 1);
+        LocalDate to = LocalDate.of(2020, 12, 31);
+        when(databaseAccess.findOrdersBetween(from, to)).thenReturn(List.of(order));
+
+        // Act & Assert
+        mockMvc.perform(get("/orders").param("from", "2020-01-01").param("to", "2020-12-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].orderId").value(7))
+                .andExpect(jsonPath("$[0].items").value("Archived"));
+
+        verify(databaseAccess, times(1)).findOrdersBetween(from, to);
+        verify(databaseAccess, never()).findAllOrders();
+    }
+
     @Test
     void postOrderShouldCreateNewOrder() throws Exception {
         // Arrange
@@ -74,14 +158,58 @@ public class OrdersControllerTest {
         newOrder.setQuantity(10);
         newOrder.setOnHand(true);
 
-        doNothing().when(databaseAccess).save(any(Orders.class));
+        when(databaseAccess.save(any(Orders.class))).thenReturn(42);
 
         // Act & Assert
         mockMvc.perform(post("/orders")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(newOrder)))
                 .andExpect(status().isOk())
-                .andExpect(content().string("http://localhost:8080/orders/"));
+                .andExpect(content().string("http://localhost:8080/orders/42"));
+
+        verify(databaseAccess, times(1)).save(any(Orders.class));
+    }
+
+    @Test
+    void postOrderWithRepeatedIdempotencyKeyShouldInsertOnce() throws Exception {
+        // Arrange
+        Orders newOrder = new Orders("RetriedItem");
+        newOrder.setQuantity(1);
+
+        when(databaseAccess.save(any(Orders.class))).thenReturn(7, 8);
+
+        // Act & Assert
+        for (int attempt = 0; attempt < 3; attempt++) {
+            mockMvc.perform(post("/orders")
+                            .header("Idempotency-Key", "retry-key-1")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(newOrder)))
+                    .andExpect(status().isOk())
+                    .andExpect(content().string("http://localhost:8080/orders/7"));
+        }
+
+        verify(databaseAccess, times(1)).save(any(Orders.class));
+    }
+
+    @Test
+    void postOrderReusingIdempotencyKeyWithDifferentBodyShouldAnswer422() throws Exception {
+        // Arrange
+        Orders first = new Orders("FirstItem");
+        Orders other = new Orders("OtherItem");
+        when(databaseAccess.save(any(Orders.class))).thenReturn(9);
+
+        mockMvc.perform(post("/orders")
+                        .header("Idempotency-Key", "reused-key-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(first)))
+                .andExpect(status().isOk());
+
+        // Act & Assert
+        mockMvc.perform(post("/orders")
+                        .header("Idempotency-Key", "reused-key-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(other)))
+                .andExpect(status().isUnprocessableEntity());
 
         verify(databaseAccess, times(1)).save(any(Orders.class));
     }
@@ -113,7 +241,7 @@ public class OrdersControllerTest {
         // Arrange
         Orders updateData = new Orders("UpdatedItem");
 
-        doNothing().when(databaseAccess).updateIndividualOrder(eq(1L), any(Orders.class));
+        when(databaseAccess.updateIndividualOrder(eq(1L), any(Orders.class))).thenReturn(true);
 
         // Act & Assert
         mockMvc.perform(put("/orders/1")
@@ -125,10 +253,74 @@ public class OrdersControllerTest {
         verify(databaseAccess, times(1)).updateIndividualOrder(eq(1L), any(Orders.class));
     }
 
+    @Test
+    void acquireEditLeaseShouldReturnOrderAndToken() throws Exception {
+        // Arrange
+        Orders order = new Orders("Leased");
+        order.setOrderId(1);
+        OrderLease lease = new OrderLease(order, "lease-1", LocalDateTime.of(2024, 1, 1, 12, 5));
+        when(databaseAccess.acquireEditLease(eq(1L), any(Duration.class))).thenReturn(lease);
+
+        // Act & Assert
+        mockMvc.perform(post("/orders/1/lease"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.leaseToken").value("lease-1"))
+                .andExpect(jsonPath("$.orders.items").value("Leased"));
+    }
+
+    @Test
+    void acquireEditLeaseShouldConflictWhileLeasedAndNotFindMissingOrder() throws Exception {
+        // Arrange
+        when(databaseAccess.acquireEditLease(anyLong(), any(Duration.class))).thenReturn(null);
+        when(databaseAccess.findByOrderIds(Collections.singletonList(1L)))
+                .thenReturn(Collections.singletonList(new Orders("Leased")));
+        when(databaseAccess.findByOrderIds(Collections.singletonList(2L))).thenReturn(Collections.emptyList());
+
+        // Act & Assert
+        mockMvc.perform(post("/orders/1/lease"))
+                .andExpect(status().isConflict());
+        mockMvc.perform(post("/orders/2/lease"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void updateLeasedOrderShouldConflictWhenLeaseWasLost() throws Exception {
+        // Arrange
+        Orders updateData = new Orders("UpdatedItem");
+        when(databaseAccess.updateWithLease(eq(1L), eq("lease-1"), any(Orders.class))).thenReturn(true);
+        when(databaseAccess.updateWithLease(eq(1L), eq("stale"), any(Orders.class))).thenReturn(false);
+        when(databaseAccess.findByOrderIds(Collections.singletonList(1L)))
+                .thenReturn(Collections.singletonList(new Orders("Taken")));
+
+        // Act & Assert
+        mockMvc.perform(put("/orders/1/lease/lease-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updateData)))
+                .andExpect(status().isOk())
+                .andExpect(content().string("Updated"));
+        mockMvc.perform(put("/orders/1/lease/stale")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updateData)))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void updateLeasedOrderShouldNotFindOrderDeletedAfterLeaseExpired() throws Exception {
+        // Arrange
+        when(databaseAccess.updateWithLease(eq(3L), eq("lease-3"), any(Orders.class))).thenReturn(false);
+        when(databaseAccess.findByOrderIds(Collections.singletonList(3L))).thenReturn(Collections.emptyList());
+
+        // Act & Assert
+        mockMvc.perform(put("/orders/3/lease/lease-3")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new Orders("UpdatedItem"))))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void deleteOrderByIdShouldDeleteOrder() throws Exception {
         // Arrange
-        doNothing().when(databaseAccess).deleteById(1L);
+        when(databaseAccess.deleteById(1L)).thenReturn(true);
 
         // Act & Assert
         mockMvc.perform(delete("/orders/1"))
@@ -137,4 +329,110 @@ public class OrdersControllerTest {
 
         verify(databaseAccess, times(1)).deleteById(1L);
     }
+
+    @Test
+    void plainUpdateAndDeleteShouldConflictWhileOrderIsLeased() throws Exception {
+        // Arrange
+        when(databaseAccess.updateIndividualOrder(eq(1L), any(Orders.class))).thenReturn(false);
+        when(databaseAccess.deleteById(anyLong())).thenReturn(false);
+        when(databaseAccess.findByOrderIds(Collections.singletonList(1L)))
+                .thenReturn(Collections.singletonList(new Orders("Leased")));
+        when(databaseAccess.findByOrderIds(Collections.singletonList(2L))).thenReturn(Collections.emptyList());
+
+        // Act & Assert
+        mockMvc.perform(put("/orders/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new Orders("UpdatedItem"))))
+                .andExpect(status().isConflict());
+        mockMvc.perform(delete("/orders/1"))
+                .andExpect(status().isConflict());
+        mockMvc.perform(delete("/orders/2"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void exportOrdersShouldStreamCsv() throws Exception {
+        // Arrange
+        Orders order = new Orders("GiftCard,Car key");
+        order.setOrderId(1);
+        order.setLocalD(LocalDate.of(2022, 2, 28));
+        order.setQuantity(5);
+        order.setOnHand(false);
+
+        doAnswer(invocation -> {
+            ((Consumer<Orders>) invocation.getArgument(1)).accept(order);
+            return null;
+        }).when(databaseAccess).streamAllOrders(anyInt(), any());
+
+        // Act & Assert
+        MvcResult result = mockMvc.perform(get("/orders/export").param("format", "csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "text/csv"))
+                .andExpect(content().string("orderId,localD,localT,items,quantity,onHand\r\n"
+                        + "1,2022-02-28,,\"GiftCard,Car key\",5,false\r\n"));
+    }
+
+    @Test
+    void importOrdersShouldBatchInsertAndReportThroughput() throws Exception {
+        // Arrange
+        String csv = "orderId,localD,localT,items,quantity,onHand\r\n"
+                + "1,2023-01-01,10:00,\"Item1\",5,true\r\n"
+                + "2,2023-01-02,11:00,\"Item2\",3,false\r\n";
+
+        // Act & Assert
+        mockMvc.perform(post("/orders/import").param("format", "csv")
+                        .contentType("text/csv")
+                        .content(csv))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.orders").value(2))
+                .andExpect(jsonPath("$.ordersPerSecond").exists());
+
+        verify(databaseAccess, times(1)).saveAll(anyList());
+    }
+
+    @Test
+    void importOrdersShouldStopAtInvalidRecordAndReportImportedCount() throws Exception {
+        // Arrange
+        String csv = "orderId,localD,localT,items,quantity,onHand\r\n"
+                + "1,2023-01-01,10:00,\"Item1\",5,true\r\n"
+                + "2,2023-01-02,11:00,\"Item2\",3,false\r\n"
+                + "3,2023-13-01,11:00,\"Bad date\",3,false\r\n"
+                + "4,2023-01-04,11:00,\"After\",3,false\r\n";
+
+        // Act & Assert
+        mockMvc.perform(post("/orders/import").param("format", "csv")
+                        .contentType("text/csv")
+                        .content(csv))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.orders").value(2))
+                .andExpect(jsonPath("$.error").value(startsWith("Record 3:")));
+
+        verify(databaseAccess, times(1)).saveAll(argThat(batch -> batch.size() == 2));
+    }
+
+    @Test
+    void importOrdersShouldReportImportedCountWhenDatabaseRejectsBatch() throws Exception {
+        // Arrange
+        String csv = "orderId,localD,localT,items,quantity,onHand\r\n"
+                + "1,2023-01-01,10:00,\"Item1\",5,true\r\n";
+        when(databaseAccess.saveAll(anyList())).thenThrow(new DataIntegrityViolationException("Value too long"));
+
+        // Act & Assert
+        mockMvc.perform(post("/orders/import").param("format", "csv")
+                        .contentType("text/csv")
+                        .content(csv))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.orders").value(0))
+                .andExpect(jsonPath("$.error").value(containsString("Value too long")));
+    }
+
+    @Test
+    void exportWithUnknownFormatShouldBeRejected() throws Exception {
+        mockMvc.perform(get("/orders/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
 }
@@ -0,0 +1,154 @@
+package com.example.orders.idempotency;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdempotencyKeyStoreTest {
+
+    private static final byte[] BODY = "{\"items\":\"Item\"}".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void duplicateKeyShouldReturnOriginalResult() {
+        IdempotencyKeyStore store = new IdempotencyKeyStore(600, 100);
+        AtomicInteger calls = new AtomicInteger();
+
+        Integer first = store.execute("key", BODY, calls::incrementAndGet);
+        Integer second = store.execute("key", BODY, calls::incrementAndGet);
+
+        assertEquals(1, first);
+        assertEquals(1, second);
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void concurrentDuplicatesShouldRunActionOnce() throws Exception {
+        IdempotencyKeyStore store = new IdempotencyKeyStore(600, 100);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return store.execute("key", BODY, calls::incrementAndGet);
+                }));
+            }
+            start.countDown();
+            for (Future<Integer> result : results) {
+                assertEquals(1, result.get());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void failedActionShouldNotBeRemembered() {
+        IdempotencyKeyStore store = new IdempotencyKeyStore(600, 100);
+
+        assertThrows(IllegalStateException.class, () -> store.execute("key", BODY, () -> {
+            throw new IllegalStateException("insert failed");
+        }));
+
+        assertEquals("retried", store.execute("key", BODY, () -> "retried"));
+    }
+
+    @Test
+    void expiredKeyShouldRunActionAgain() {
+        IdempotencyKeyStore store = new IdempotencyKeyStore(0, 100);
+
+        store.execute("key", BODY, () -> 1);
+
+        assertEquals(2, store.execute("key", BODY, () -> 2));
+    }
+
+    @Test
+    void storeShouldStayWithinMaxKeys() {
+        IdempotencyKeyStore store = new IdempotencyKeyStore(600, 3);
+
+        for (int i = 0; i < 10; i++) {
+            int value = i;
+            store.execute("key" + i, BODY, () -> value);
+        }
+
+        assertEquals(3, store.size());
+        assertEquals(9, store.execute("key9", BODY, () -> -1));
+    }
+
+    @Test
+    void keyReusedWithDifferentBodyShouldBeRejected() {
+        IdempotencyKeyStore store = new IdempotencyKeyStore(600, 100);
+        store.execute("key", BODY, () -> 1);
+
+        byte[] otherBody = "{\"items\":\"Other\"}".getBytes(StandardCharsets.UTF_8);
+        assertThrows(IdempotencyKeyReusedException.class, () -> store.execute("key", otherBody, () -> 2));
+        assertEquals(1, store.execute("key", BODY, () -> 2));
+    }
+
+    @Test
+    void failedActionsShouldNotGrowTheStore() {
+        IdempotencyKeyStore store = new IdempotencyKeyStore(600, 3);
+
+        for (int i = 0; i < 100; i++) {
+            assertThrows(IllegalStateException.class, () -> store.execute("failing", BODY, () -> {
+                throw new IllegalStateException("insert failed");
+            }));
+        }
+        for (int i = 0; i < 3; i++) {
+            int value = i;
+            store.execute("key" + i, BODY, () -> value);
+        }
+
+        assertEquals(3, store.size());
+        assertEquals(3, store.queuedEntries());
+        assertEquals(0, store.execute("key0", BODY, () -> -1));
+    }
+
+    @Test
+    void keyShouldNotBeEvictedWhileItsActionIsRunning() throws Exception {
+        IdempotencyKeyStore store = new IdempotencyKeyStore(600, 1);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> first = pool.submit(() -> store.execute("slow", BODY, () -> {
+                running.countDown();
+                await(finish);
+                return calls.incrementAndGet();
+            }));
+            running.await();
+
+            // Fills the store past max-keys while "slow" is still inserting
+            store.execute("other", BODY, () -> 0);
+            Future<Integer> retry = pool.submit(() -> store.execute("slow", BODY, calls::incrementAndGet));
+            finish.countDown();
+
+            assertEquals(1, first.get());
+            assertEquals(1, retry.get());
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, calls.get());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.orders.properties;
+
+import com.example.orders.model.Orders;
+import net.jqwik.api.Arbitraries;
+import net.jqwik.api.Arbitrary;
+import net.jqwik.api.Combinators;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Generators for valid orders, shared by the property tests and the load generator so
+ * that both exercise the service with the same shape of data.
+ */
+public final class OrdersArbitraries {
+
+    private OrdersArbitraries() {
+    }
+
+    public static Arbitrary<String> items() {
+        return Arbitraries.strings()
+                .alpha().numeric().withChars(',', ' ')
+                .ofMinLength(1).ofMaxLength(100);
+    }
+
+    public static Arbitrary<Orders> orders() {
+        // Generate random dates using integers for year, month, day
+        Arbitrary<LocalDate> dates = Arbitraries.integers().between(2020, 2025)
+                .flatMap(year -> Arbitraries.integers().between(1, 12)
+                        .flatMap(month -> Arbitraries.integers().between(1, 28)
+                                .map(day -> LocalDate.of(year, month, day))));
+        
+        Arbitrary<LocalTime> times = Arbitraries.of(
+                LocalTime.of(0, 0),
+                LocalTime.of(12, 0),
+                LocalTime.of(23, 59)
+        );
+        
+        Arbitrary<Integer> quantities = Arbitraries.integers().between(1, 100);
+        Arbitrary<Boolean> onHand = Arbitraries.of(true, false);
+
+        return Combinators.combine(items(), dates, times, quantities, onHand)
+                .as((i, d, t, q, o) -> {
+                    Orders order = new Orders(i);
+                    order.setLocalD(d);
+                    order.setLocalT(t);
+                    order.setQuantity(q);
+                    order.setOnHand(o);
+                    return order;
+                });
+    }
+}
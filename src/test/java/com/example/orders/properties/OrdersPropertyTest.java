@@ -243,9 +243,7 @@ public class OrdersPropertyTest {
 
     @Provide
     Arbitrary<String> itemsString() {
-        return Arbitraries.strings()
-                .alpha().numeric().withChars(',', ' ')
-                .ofMinLength(1).ofMaxLength(100);
+        return OrdersArbitraries.items();
     }
 
     @Provide
@@ -255,33 +253,6 @@ public class OrdersPropertyTest {
 
     @Provide
     Arbitrary<Orders> ordersArbitrary() {
-        Arbitrary<String> items = Arbitraries.strings()
-                .alpha().numeric().withChars(',', ' ')
-                .ofMinLength(1).ofMaxLength(100);
-        
-        // Generate random dates using integers for year, month, day
-        Arbitrary<LocalDate> dates = Arbitraries.integers().between(2020, 2025)
-                .flatMap(year -> Arbitraries.integers().between(1, 12)
-                        .flatMap(month -> Arbitraries.integers().between(1, 28)
-                                .map(day -> LocalDate.of(year, month, day))));
-        
-        Arbitrary<LocalTime> times = Arbitraries.of(
-                LocalTime.of(0, 0),
-                LocalTime.of(12, 0),
-                LocalTime.of(23, 59)
-        );
-        
-        Arbitrary<Integer> quantities = Arbitraries.integers().between(1, 100);
-        Arbitrary<Boolean> onHand = Arbitraries.of(true, false);
-
-        return Combinators.combine(items, dates, times, quantities, onHand)
-                .as((i, d, t, q, o) -> {
-                    Orders order = new Orders(i);
-                    order.setLocalD(d);
-                    order.setLocalT(t);
-                    order.setQuantity(q);
-                    order.setOnHand(o);
-                    return order;
-                });
+        return OrdersArbitraries.orders();
     }
 }
@@ -0,0 +1,36 @@
+package com.example.orders.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.jdbc.core.SqlParameter;
+
+import java.sql.Types;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompiledStatementTest {
+
+    @Test
+    void namedParametersShouldBeReplacedWithPlaceholders() {
+        CompiledStatement statement = CompiledStatement.compile(
+                "SELECT * FROM orders WHERE localD BETWEEN :from AND :to",
+                new SqlParameter("from", Types.DATE), new SqlParameter("to", Types.DATE));
+
+        assertEquals("SELECT * FROM orders WHERE localD BETWEEN ? AND ?", statement.getSql());
+    }
+
+    @Test
+    void undeclaredParameterShouldBeRejectedWhenCompiling() {
+        assertThrows(InvalidDataAccessApiUsageException.class, () -> CompiledStatement.compile(
+                "DELETE FROM orders WHERE orderId = :orderId"));
+    }
+
+    @Test
+    void wrongNumberOfValuesShouldBeRejected() {
+        CompiledStatement statement = CompiledStatement.compile(
+                "DELETE FROM orders WHERE orderId = :orderId", new SqlParameter("orderId", Types.BIGINT));
+
+        assertThrows(IllegalArgumentException.class, () -> statement.creator());
+        assertThrows(IllegalArgumentException.class, () -> statement.creator(1L, 2L));
+    }
+}
@@ -1,14 +1,23 @@
 package com.example.orders.repository;
 
+import com.example.orders.model.OrderLease;
 import com.example.orders.model.Orders;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -18,6 +27,12 @@ public class DatabaseAccessTest {
     @Autowired
     private DatabaseAccess databaseAccess;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     @Test
     @Sql(scripts = "/cleanup.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
     void findByOrderIdWithNonExistentIdShouldThrowException() {
@@ -55,4 +70,277 @@ public class DatabaseAccessTest {
         assertEquals(1, orders.size());
         assertNull(orders.get(0).getItems());
     }
+
+    @Test
+    @Sql(scripts = "/cleanup.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    void saveShouldReturnGeneratedOrderId() {
+        Integer orderId = databaseAccess.save(order("Keyed", LocalDate.of(2024, 1, 1)));
+
+        assertNotNull(orderId);
+        assertEquals("Keyed", databaseAccess.findByOrderId(orderId.longValue()).getItems());
+    }
+
+    @Test
+    @Sql(scripts = "/cleanup.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    void findOrdersPageShouldReturnSortedSlice() {
+        for (int day = 5; day >= 1; day--) {
+            databaseAccess.save(order("Day" + day, LocalDate.of(2024, 1, day)));
+        }
+
+        List<Orders> firstPage = databaseAccess.findOrdersPage(null, null, 2);
+        Orders last = firstPage.get(1);
+        List<Orders> secondPage = databaseAccess.findOrdersPage(last.getLocalD(), last.getOrderId().longValue(), 2);
+
+        assertEquals(2, secondPage.size());
+        assertEquals("Day3", secondPage.get(0).getItems());
+        assertEquals("Day4", secondPage.get(1).getItems());
+    }
+
+    @Test
+    @Sql(scripts = "/cleanup.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    void pagingWithCursorShouldVisitEveryOrderOnceIncludingUndatedAndSameDate() {
+        for (int i = 0; i < 7; i++) {
+            databaseAccess.save(order("Dated" + i, LocalDate.of(2024, 1, 1 + i % 2)));
+            databaseAccess.save(order("Undated" + i, null));
+        }
+
+        List<Orders> visited = new ArrayList<>();
+        List<Orders> page = databaseAccess.findOrdersPage(null, null, 3);
+        while (!page.isEmpty()) {
+            visited.addAll(page);
+            Orders last = page.get(page.size() - 1);
+            page = databaseAccess.findOrdersPage(last.getLocalD(), last.getOrderId().longValue(), 3);
+        }
+
+        assertEquals(databaseAccess.findAllOrders().size(), visited.size());
+        for (int i = 1; i < visited.size(); i++) {
+            Orders previous = visited.get(i - 1);
+            Orders current = visited.get(i);
+            if (previous.getLocalD() == null ? current.getLocalD() == null
+                    : previous.getLocalD().equals(current.getLocalD())) {
+                assertTrue(previous.getOrderId() < current.getOrderId(), "orderId should break ties");
+            } else {
+                assertTrue(previous.getLocalD() == null || previous.getLocalD().isBefore(current.getLocalD()),
+                        "Undated orders should come first, then by date");
+            }
+        }
+    }
+
+    @Test
+    @Sql(scripts = "/cleanup.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    void findByOrderIdsShouldSkipMissingIds() {
+        Integer first = databaseAccess.save(order("First", LocalDate.of(2024, 1, 1)));
+        Integer second = databaseAccess.save(order("Second", LocalDate.of(2024, 1, 2)));
+
+        List<Orders> found = databaseAccess.findByOrderIds(
+                List.of(second.longValue(), 999_999L, first.longValue()));
+
+        assertEquals(2, found.size());
+        assertEquals("First", found.get(0).getItems());
+        assertEquals("Second", found.get(1).getItems());
+        assertTrue(databaseAccess.findByOrderIds(List.of()).isEmpty());
+    }
+
+    @Test
+    @Sql(scripts = "/cleanup.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    void saveAllAndStreamAllOrdersShouldRoundTrip() {
+        List<Orders> batch = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            batch.add(order("Bulk" + i, LocalDate.of(2024, 1, 1).plusDays(i)));
+        }
+
+        databaseAccess.saveAll(batch);
+
+        List<Orders> streamed = new ArrayList<>();
+        databaseAccess.streamAllOrders(10, streamed::add);
+        assertEquals(25, streamed.size());
+        assertEquals("Bulk0", streamed.get(0).getItems());
+        assertEquals("Bulk24", streamed.get(24).getItems());
+        assertNotNull(streamed.get(0).getOrderId());
+    }
+
+    @Test
+    @Sql(scripts = "/cleanup.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    void saveAllShouldInsertNothingWhenOneOrderIsRejected() {
+        List<Orders> batch = new ArrayList<>();
+        batch.add(order("Before", LocalDate.of(2024, 1, 1)));
+        batch.add(order("x".repeat(101), LocalDate.of(2024, 1, 2)));
+        batch.add(order("After", LocalDate.of(2024, 1, 3)));
+
+        assertThrows(DataAccessException.class, () -> databaseAccess.saveAll(batch));
+
+        assertTrue(databaseAccess.findAllOrders().isEmpty(), "A failed batch should not leave any of its orders behind");
+    }
+
+    @Test
+    @Sql(scripts = "/cleanup.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    void streamAllOrdersShouldIncludeArchivedOrdersFromOneSnapshot() {
+        databaseAccess.save(order("Archived", LocalDate.of(2019, 1, 1)));
+        databaseAccess.archiveOrdersBefore(LocalDate.of(2020, 1, 1));
+        databaseAccess.save(order("Old", LocalDate.of(2020, 6, 1)));
+        databaseAccess.save(order("Recent", LocalDate.of(2024, 6, 1)));
+
+        List<String> streamed = new ArrayList<>();
+        databaseAccess.streamAllOrders(10, orders -> {
+            if (streamed.isEmpty()) {
+                // An archive run committing while the archived orders are being exported moves "Old"
+                CompletableFuture.supplyAsync(() -> databaseAccess.archiveOrdersBefore(LocalDate.of(2023, 1, 1))).join();
+            }
+            streamed.add(orders.getItems());
+        });
+
+        assertEquals(List.of("Archived", "Old", "Recent"), streamed);
+    }
+
+    @Test
+    @Sql(scripts = "/cleanup.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    void archiveOrdersBeforeShouldMoveOnlyOldOrders() {
+        databaseAccess.save(order("Old", LocalDate.of(2020, 1, 1)));
+        databaseAccess.save(order("Recent", LocalDate.of(2024, 6, 1)));
+
+        int archived = databaseAccess.archiveOrdersBefore(LocalDate.of(2023, 1, 1));
+
+        assertEquals(1, archived);
+        List<Orders> hot = databaseAccess.findAllOrders();
+        assertEquals(1, hot.size());
+        assertEquals("Recent", hot.get(0).getItems());
+    }
+
+    @Test
+    @Sql(scripts = "/cleanup.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    void archiveOrdersBeforeShouldMoveEveryBatch() {
+        List<Orders> old = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            old.add(order("Old" + i, LocalDate.of(2020, 1, 1).plusDays(i % 300)));
+        }
+        databaseAccess.saveAll(old);
+        databaseAccess.save(order("Recent", LocalDate.of(2024, 6, 1)));
+
+        assertEquals(2500, databaseAccess.archiveOrdersBefore(LocalDate.of(2023, 1, 1)));
+
+        assertEquals(1, databaseAccess.findAllOrders().size());
+        assertEquals(2500, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders_archive", Integer.class));
+    }
+
+    @Test
+    @Sql(scripts = "/cleanup.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    void archiveRunningDuringUpdatesShouldNotLoseOrDuplicateOrders() throws Exception {
+        long updated = databaseAccess.save(order("Old", LocalDate.of(2020, 1, 1)));
+        long renewed = databaseAccess.save(order("Renewed", LocalDate.of(2020, 1, 1)));
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        CompletableFuture<Integer> archived = new CompletableFuture<>();
+
+        // Hold the row locks of both updates while the archive job runs
+        transaction.executeWithoutResult(status -> {
+            databaseAccess.updateIndividualOrder(updated, order("Updated", LocalDate.of(2020, 1, 1)));
+            jdbcTemplate.update("UPDATE orders SET localD = ? WHERE orderId = ?", LocalDate.of(2024, 6, 1), renewed);
+            CompletableFuture.runAsync(() -> archived.complete(databaseAccess.archiveOrdersBefore(LocalDate.of(2023, 1, 1))));
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        assertEquals(1, archived.get(10, TimeUnit.SECONDS));
+        List<Orders> hot = databaseAccess.findAllOrders();
+        assertEquals(1, hot.size());
+        assertEquals(renewed, hot.get(0).getOrderId().longValue(), "A row moved past the cutoff should stay hot");
+        List<Orders> all = databaseAccess.findOrdersBetween(LocalDate.of(2019, 1, 1), LocalDate.of(2025, 1, 1));
+        assertEquals(2, all.size(), "No order should be in both tables");
+        assertEquals("Updated", all.get(0).getItems(), "The archived copy should include the concurrent update");
+    }
+
+    @Test
+    @Sql(scripts = "/cleanup.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    void findOrdersBetweenShouldFederateIntoArchive() {
+        databaseAccess.save(order("Old", LocalDate.of(2020, 1, 1)));
+        databaseAccess.save(order("Recent", LocalDate.of(2024, 6, 1)));
+        databaseAccess.archiveOrdersBefore(LocalDate.of(2023, 1, 1));
+
+        List<Orders> all = databaseAccess.findOrdersBetween(LocalDate.of(2019, 1, 1), LocalDate.of(2025, 1, 1));
+        assertEquals(2, all.size());
+        assertEquals("Old", all.get(0).getItems());
+        assertEquals("Recent", all.get(1).getItems());
+
+        List<Orders> hotOnly = databaseAccess.findOrdersBetween(LocalDate.of(2024, 1, 1), LocalDate.of(2025, 1, 1));
+        assertEquals(1, hotOnly.size());
+        assertEquals("Recent", hotOnly.get(0).getItems());
+    }
+
+    @Test
+    @Sql(scripts = "/cleanup.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    void editLeaseShouldBeExclusiveUntilSaved() {
+        long orderId = databaseAccess.save(order("Original", LocalDate.of(2024, 6, 1)));
+
+        OrderLease lease = databaseAccess.acquireEditLease(orderId, Duration.ofMinutes(5));
+        assertNotNull(lease);
+        assertEquals("Original", lease.getOrders().getItems());
+        assertNull(databaseAccess.acquireEditLease(orderId, Duration.ofMinutes(5)), "Lease should be exclusive");
+        assertFalse(databaseAccess.updateWithLease(orderId, "not-the-token", order("Stolen", LocalDate.of(2024, 6, 1))));
+
+        Orders edited = order("Edited", LocalDate.of(2024, 7, 1));
+        assertTrue(databaseAccess.updateWithLease(orderId, lease.getLeaseToken(), edited));
+
+        Orders saved = databaseAccess.findByOrderId(orderId);
+        assertEquals("Edited", saved.getItems());
+        assertEquals(LocalDate.of(2024, 7, 1), saved.getLocalD());
+        assertEquals(orderId, saved.getOrderId().longValue(), "Editing should keep the orderId");
+        assertNotNull(databaseAccess.acquireEditLease(orderId, Duration.ofMinutes(5)), "Saving should release the lease");
+    }
+
+    @Test
+    @Sql(scripts = "/cleanup.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    void expiredOrReleasedEditLeaseShouldBeTakenOver() {
+        long orderId = databaseAccess.save(order("Original", LocalDate.of(2024, 6, 1)));
+
+        OrderLease abandoned = databaseAccess.acquireEditLease(orderId, Duration.ofSeconds(-1));
+        OrderLease second = databaseAccess.acquireEditLease(orderId, Duration.ofMinutes(5));
+        assertNotNull(second, "An expired lease should not block editing");
+        assertFalse(databaseAccess.updateWithLease(orderId, abandoned.getLeaseToken(), order("Late", LocalDate.of(2024, 6, 1))));
+
+        assertTrue(databaseAccess.releaseEditLease(orderId, second.getLeaseToken()));
+        assertNotNull(databaseAccess.acquireEditLease(orderId, Duration.ofMinutes(5)));
+        assertNull(databaseAccess.acquireEditLease(999L, Duration.ofMinutes(5)));
+    }
+
+    @Test
+    @Sql(scripts = "/cleanup.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    void writesWithoutLeaseShouldLeaveLeasedOrderAlone() {
+        long leasedId = databaseAccess.save(order("Leased", LocalDate.of(2020, 1, 1)));
+        long expiredId = databaseAccess.save(order("Expired", LocalDate.of(2020, 1, 1)));
+        OrderLease lease = databaseAccess.acquireEditLease(leasedId, Duration.ofMinutes(5));
+        OrderLease expired = databaseAccess.acquireEditLease(expiredId, Duration.ofSeconds(-1));
+
+        assertFalse(databaseAccess.updateIndividualOrder(leasedId, order("Overwritten", LocalDate.of(2020, 1, 1))));
+        assertFalse(databaseAccess.deleteById(leasedId));
+        assertEquals(1, databaseAccess.archiveOrdersBefore(LocalDate.of(2021, 1, 1)), "Only the expired lease may be archived");
+        assertEquals("Leased", databaseAccess.findByOrderId(leasedId).getItems());
+
+        assertTrue(databaseAccess.updateWithLease(leasedId, lease.getLeaseToken(), order("Edited", LocalDate.of(2020, 1, 1))));
+        assertFalse(databaseAccess.updateWithLease(expiredId, expired.getLeaseToken(), order("Late", LocalDate.of(2020, 1, 1))),
+                "An archived order cannot be saved by the holder of an expired lease");
+        assertTrue(databaseAccess.deleteById(leasedId));
+    }
+
+    @Test
+    @Sql(scripts = "/cleanup.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    void updateAfterLeaseExpiredShouldRefuseTheLateSave() {
+        long orderId = databaseAccess.save(order("Original", LocalDate.of(2024, 6, 1)));
+        OrderLease expired = databaseAccess.acquireEditLease(orderId, Duration.ofSeconds(-1));
+
+        assertTrue(databaseAccess.updateIndividualOrder(orderId, order("Newer", LocalDate.of(2024, 6, 1))));
+
+        assertFalse(databaseAccess.updateWithLease(orderId, expired.getLeaseToken(), order("Late", LocalDate.of(2024, 6, 1))));
+        assertEquals("Newer", databaseAccess.findByOrderId(orderId).getItems());
+    }
+
+    private Orders order(String items, LocalDate date) {
+        Orders order = new Orders(items);
+        order.setLocalD(date);
+        order.setLocalT(LocalTime.of(12, 0));
+        order.setQuantity(1);
+        order.setOnHand(true);
+        return order;
+    }
 }
@@ -0,0 +1,45 @@
+package com.example.orders.store;
+
+import com.example.orders.OrdersApplication;
+import com.example.orders.model.Orders;
+import com.example.orders.repository.DatabaseAccess;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PersistentOrdersStoreTest {
+
+    @TempDir
+    Path storeDir;
+
+    @Test
+    void ordersShouldSurviveRestartWithoutReseeding() {
+        try (ConfigurableApplicationContext context = start()) {
+            List<Orders> seeded = context.getBean(DatabaseAccess.class).findAllOrders();
+            assertEquals(1, seeded.size(), "A new store should be seeded from data.sql");
+
+            Orders order = new Orders("Persisted");
+            order.setLocalD(LocalDate.of(2024, 1, 1));
+            context.getBean(DatabaseAccess.class).save(order);
+        }
+
+        try (ConfigurableApplicationContext context = start()) {
+            List<Orders> restored = context.getBean(DatabaseAccess.class).findAllOrders();
+            assertEquals(2, restored.size(), "A warm start should keep saved orders and not re-run data.sql");
+            assertTrue(restored.stream().anyMatch(o -> "Persisted".equals(o.getItems())));
+        }
+    }
+
+    private ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(OrdersApplication.class)
+                .profiles("file")
+                .run("--server.port=0", "--orders.store.dir=" + storeDir.toAbsolutePath());
+    }
+}
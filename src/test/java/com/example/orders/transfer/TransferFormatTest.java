@@ -0,0 +1,162 @@
+package com.example.orders.transfer;
+
+import com.example.orders.model.Orders;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransferFormatTest {
+
+    @ParameterizedTest
+    @EnumSource(TransferFormat.class)
+    void ordersShouldRoundTrip(TransferFormat format) throws IOException {
+        List<Orders> orders = new ArrayList<>();
+        orders.add(order(1, "GiftCard,Car key", LocalDate.of(2022, 2, 28), LocalTime.of(23, 59), 5, false));
+        orders.add(order(2, "Quoted \"item\"\nwith a line break", LocalDate.of(2023, 1, 1), LocalTime.of(12, 0, 30), 1, true));
+        orders.add(order(3, "", null, null, null, null));
+        orders.add(order(4, null, LocalDate.of(2024, 6, 1), LocalTime.MIDNIGHT, 0, true));
+
+        assertEquals(orders, roundTrip(format, orders));
+    }
+
+    @ParameterizedTest
+    @EnumSource(TransferFormat.class)
+    void emptyExportShouldReadBackAsNoOrders(TransferFormat format) throws IOException {
+        assertTrue(roundTrip(format, new ArrayList<>()).isEmpty());
+    }
+
+    @Test
+    void columnarShouldSpanSeveralRowGroupsAndCompress() throws IOException {
+        List<Orders> orders = new ArrayList<>();
+        for (int i = 1; i <= ColumnarOrdersWriter.ROW_GROUP_SIZE * 2 + 10; i++) {
+            orders.add(order(i, "Item " + (i % 10), LocalDate.of(2024, 1, 1).plusDays(i % 30),
+                    LocalTime.NOON, i % 7, i % 2 == 0));
+        }
+
+        ByteArrayOutputStream columnar = write(TransferFormat.COLUMNAR, orders);
+        ByteArrayOutputStream csv = write(TransferFormat.CSV, orders);
+
+        assertEquals(orders, read(TransferFormat.COLUMNAR, columnar.toByteArray()));
+        assertTrue(columnar.size() < csv.size() / 2, "Columnar export should be much smaller than CSV");
+    }
+
+    @Test
+    void csvShouldStartWithHeader() throws IOException {
+        String csv = new String(write(TransferFormat.CSV, List.of(order(1, "Item", null, null, 2, true))).toByteArray(),
+                StandardCharsets.UTF_8);
+
+        assertEquals("orderId,localD,localT,items,quantity,onHand\r\n1,,,\"Item\",2,true\r\n", csv);
+    }
+
+    @Test
+    void csvWithUnparsableValueShouldReportTheRecord() {
+        String csv = "orderId,localD,localT,items,quantity,onHand\r\n1,2023-01-01,,\"A\",1,true\r\n2,,,\"B\",many,true\r\n";
+
+        OrdersFormatException e = assertThrows(OrdersFormatException.class,
+                () -> read(TransferFormat.CSV, csv.getBytes(StandardCharsets.UTF_8)));
+        assertTrue(e.getMessage().startsWith("Record 2:"), e.getMessage());
+    }
+
+    @ParameterizedTest
+    @EnumSource(TransferFormat.class)
+    void itemsLongerThanTheColumnShouldBeRejected(TransferFormat format) throws IOException {
+        String tooLong = "x".repeat(OrdersReader.MAX_ITEMS_LENGTH + 1);
+        byte[] data = write(format, List.of(order(1, "x".repeat(OrdersReader.MAX_ITEMS_LENGTH), null, null, 1, true),
+                order(2, tooLong, null, null, 1, true))).toByteArray();
+
+        OrdersFormatException e = assertThrows(OrdersFormatException.class, () -> read(format, data));
+        assertTrue(e.getMessage().contains("longer than " + OrdersReader.MAX_ITEMS_LENGTH), e.getMessage());
+    }
+
+    @Test
+    void csvShouldRejectHugeFieldsWithoutBufferingThem() {
+        StringBuilder huge = new StringBuilder("orderId,localD,localT,items,quantity,onHand\r\n1,,,\"");
+        huge.append("x".repeat(1_000_000));
+        StringBuilder manyFields = new StringBuilder("orderId,localD,localT,items,quantity,onHand\r\n");
+        manyFields.append(",".repeat(1_000_000));
+
+        OrdersFormatException longField = assertThrows(OrdersFormatException.class,
+                () -> read(TransferFormat.CSV, huge.toString().getBytes(StandardCharsets.UTF_8)));
+        assertTrue(longField.getMessage().startsWith("Record 1: field longer than"), longField.getMessage());
+        OrdersFormatException extraFields = assertThrows(OrdersFormatException.class,
+                () -> read(TransferFormat.CSV, manyFields.toString().getBytes(StandardCharsets.UTF_8)));
+        assertTrue(extraFields.getMessage().startsWith("Record 1: more than 6 fields"), extraFields.getMessage());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"1", "yes", "Y", "TRUE", ""})
+    void csvShouldAcceptOnlyTrueOrFalseForOnHand(String onHand) {
+        String csv = "orderId,localD,localT,items,quantity,onHand\r\n1,,,\"A\",1,\"" + onHand + "\"\r\n";
+
+        assertThrows(OrdersFormatException.class, () -> read(TransferFormat.CSV, csv.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {-1, 0, Integer.MAX_VALUE})
+    void columnarWithInvalidBlockLengthShouldBeRejectedBeforeAllocating(int length) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(ColumnarOrdersWriter.MAGIC);
+        out.writeInt(1);
+        out.writeInt(length);
+
+        assertThrows(OrdersFormatException.class, () -> read(TransferFormat.COLUMNAR, bytes.toByteArray()));
+    }
+
+    @Test
+    void truncatedColumnarFileShouldBeRejected() throws IOException {
+        List<Orders> orders = List.of(order(1, "Item", LocalDate.of(2024, 1, 1), LocalTime.NOON, 1, true));
+        byte[] columnar = write(TransferFormat.COLUMNAR, orders).toByteArray();
+
+        assertThrows(OrdersFormatException.class,
+                () -> read(TransferFormat.COLUMNAR, Arrays.copyOf(columnar, columnar.length - 10)));
+    }
+
+    private static List<Orders> roundTrip(TransferFormat format, List<Orders> orders) throws IOException {
+        return read(format, write(format, orders).toByteArray());
+    }
+
+    private static ByteArrayOutputStream write(TransferFormat format, List<Orders> orders) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OrdersWriter writer = format.writer(out)) {
+            for (Orders o : orders) {
+                writer.write(o);
+            }
+        }
+        return out;
+    }
+
+    private static List<Orders> read(TransferFormat format, byte[] data) throws IOException {
+        List<Orders> orders = new ArrayList<>();
+        try (OrdersReader reader = format.reader(new ByteArrayInputStream(data))) {
+            for (Orders o = reader.read(); o != null; o = reader.read()) {
+                orders.add(o);
+            }
+        }
+        return orders;
+    }
+
+    private static Orders order(Integer id, String items, LocalDate date, LocalTime time, Integer quantity, Boolean onHand) {
+        Orders order = new Orders(items);
+        order.setOrderId(id);
+        order.setLocalD(date);
+        order.setLocalT(time);
+        order.setQuantity(quantity);
+        order.setOnHand(onHand);
+        return order;
+    }
+}
@@ -1 +1,2 @@
 DELETE FROM orders;
+DELETE FROM orders_archive;